@@ -0,0 +1,30 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+
+
+/**
+ * Recorded api.weather.gov responses.
+ */
+final class Fixtures {
+
+    static final String POINTS = "points.json";
+    static final String FORECAST = "forecast.json";
+    static final String ALERTS = "alerts-NY.json";
+
+    private Fixtures() {
+    }
+
+
+    static byte[] read(String name) throws IOException {
+        try (InputStream inputStream = Fixtures.class.getClassLoader().getResourceAsStream("fixtures/" + name)) {
+            if (inputStream == null) {
+                throw new NoSuchFileException(name);
+            }
+            return inputStream.readAllBytes();
+        }
+    }
+
+}
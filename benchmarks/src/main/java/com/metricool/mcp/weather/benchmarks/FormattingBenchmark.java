@@ -0,0 +1,75 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.metricool.mcp.weather.service.ForecastView;
+import com.metricool.mcp.weather.service.NwsParser;
+import com.metricool.mcp.weather.service.Renderer;
+import com.metricool.mcp.weather.service.WeatherService;
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+import com.metricool.mcp.weather.service.WeatherService.Forecast;
+
+
+/**
+ * {@code String.format} text rendering of already parsed forecasts and alerts, compared with the
+ * compact JSON view and with a rendering served from the {@link Renderer} cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormattingBenchmark {
+
+    private Forecast forecast;
+    private Alert alerts;
+    private final ForecastView jsonView = ForecastView.fromArguments(Map.of("format", "json"));
+
+
+    @Setup
+    public void setUp() throws IOException {
+        forecast = NwsParser.parseForecast(new ByteArrayInputStream(Fixtures.read(Fixtures.FORECAST)));
+        alerts = NwsParser.parseAlerts(new ByteArrayInputStream(Fixtures.read(Fixtures.ALERTS)));
+    }
+
+
+    @Benchmark
+    public String formatForecast() {
+        return WeatherService.formatForecast(forecast);
+    }
+
+
+    @Benchmark
+    public String formatAlerts() {
+        return WeatherService.formatAlerts(alerts);
+    }
+
+
+    @Benchmark
+    public String renderForecastJson() {
+        // A new instance misses the rendering cache
+        return Renderer.render(new Forecast(forecast.properties()), jsonView);
+    }
+
+
+    @Benchmark
+    public String renderForecastCached() {
+        return Renderer.render(forecast, ForecastView.DEFAULT);
+    }
+
+}
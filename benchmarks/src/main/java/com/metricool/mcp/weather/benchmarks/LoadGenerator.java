@@ -0,0 +1,360 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.metricool.mcp.weather.upstream.NwsStandInServer;
+import com.metricool.mcp.weather.utils.Config;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+
+
+/**
+ * Load generator qualifying a server build: many concurrent MCP sessions, each calling tools back
+ * to back in a weighted mix, against the embedded {@link NwsStandInServer}. It reports session
+ * setup time, then throughput, latency percentiles and error rates per tool.
+ *
+ * The server under test is the shaded jar, started as a child process: one per session over STDIO,
+ * as agents do, or a single HTTP server for the SSE and streamable HTTP transports. An already
+ * running server can be targeted instead with {@code load.server.url}.
+ *
+ * <pre>
+ * mvn install -DskipTests
+ * mvn -f benchmarks/pom.xml package
+ * java -Dmcp.weather.load.transport=sse -Dmcp.weather.load.clients=64 \
+ *      -cp benchmarks/target/benchmarks.jar com.metricool.mcp.weather.benchmarks.LoadGenerator
+ * </pre>
+ *
+ * Settings, read like the server's with {@link Config}:
+ * <ul>
+ * <li>{@code load.transport}: {@code sse} (default), {@code streamable} or {@code stdio}</li>
+ * <li>{@code load.clients}: concurrent sessions (16)</li>
+ * <li>{@code load.warmup.seconds} (10) and {@code load.duration.seconds} (30)</li>
+ * <li>{@code load.mix}: tools and their weights
+ *     ({@code get_weather_forecast_by_location=8,get_alerts=2})</li>
+ * <li>{@code load.server.jar} ({@code target/mcp-weather-server.jar}), {@code load.server.port} (18080) and
+ *     {@code load.server.jvm-args}, e.g. {@code -Dmcp.weather.server.mode=async}</li>
+ * <li>{@code load.server.url}: test this server instead of starting one</li>
+ * <li>{@code load.upstream.latency.ms} (50), {@code load.upstream.jitter.ms} (25),
+ *     {@code load.upstream.error-rate} (0.0), {@code load.upstream.cache-control} ({@code max-age=60}),
+ *     {@code load.upstream.slow-rate} (0.0) and {@code load.upstream.slow.ms} (1000)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+    private static final String TRANSPORT = Config.get("load.transport", "sse");
+    private static final int CLIENTS = Config.getInt("load.clients", 16);
+    private static final long WARMUP_SECONDS = Config.getLong("load.warmup.seconds", 10);
+    private static final long DURATION_SECONDS = Config.getLong("load.duration.seconds", 30);
+    private static final String MIX = Config.get("load.mix", "get_weather_forecast_by_location=8,get_alerts=2");
+    private static final String SERVER_JAR = Config.get("load.server.jar", "target/mcp-weather-server.jar");
+    private static final int SERVER_PORT = Config.getInt("load.server.port", 18080);
+    private static final String SERVER_JVM_ARGS = Config.get("load.server.jvm-args", "");
+    private static final String SERVER_URL = Config.get("load.server.url", null);
+
+    private static final String JAVA = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+    private static final double[][] CITIES = {
+        {47.6062, -122.3321}, {40.7128, -74.0060}, {41.8781, -87.6298}, {29.7604, -95.3698}, {33.4484, -112.0740},
+        {39.7392, -104.9903}, {25.7617, -80.1918}, {42.3601, -71.0589}, {37.7749, -122.4194}, {44.9778, -93.2650},
+    };
+    private static final String[] STATES = {"NY", "CA", "TX", "FL", "WA", "IL", "CO", "MA", "AZ", "MN"};
+
+
+    /**
+     * An MCP session over one of the transports.
+     */
+    private interface Session {
+        CallToolResult callTool(CallToolRequest request) throws Exception;
+
+        void close() throws Exception;
+    }
+
+
+    /**
+     * Latencies and errors of one tool.
+     */
+    private static final class Stats {
+        final Recorder latencies = new Recorder(3);
+        final LongAdder errors = new LongAdder();
+        Histogram histogram;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Integer> mix = parseMix(MIX);
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+        NwsStandInServer upstream = new NwsStandInServer(0, Config.getLong("load.upstream.latency.ms", 50),
+                Config.getLong("load.upstream.jitter.ms", 25), Config.getDouble("load.upstream.error-rate", 0.0),
+                Config.get("load.upstream.cache-control", "max-age=60"));
+        upstream.setSlowResponses(Config.getDouble("load.upstream.slow-rate", 0.0), Config.getLong("load.upstream.slow.ms", 1000));
+        String upstreamUrl = upstream.start();
+
+        Process server = null;
+        String serverUrl = SERVER_URL;
+        if (serverUrl == null && !"stdio".equals(TRANSPORT)) {
+            server = startHttpServer(upstreamUrl);
+            serverUrl = "http://localhost:" + SERVER_PORT;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        List<Session> sessions = new ArrayList<>();
+        try {
+            // Open every session before the load starts, as agents connecting at once would
+            Histogram setup = new Histogram(3);
+            long setupStart = System.nanoTime();
+            List<Future<Session>> opening = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                String url = serverUrl;
+                opening.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    Session session = openSession(url, upstreamUrl);
+                    synchronized (setup) {
+                        setup.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    }
+                    return session;
+                }));
+            }
+            for (Future<Session> session : opening) {
+                sessions.add(session.get());
+            }
+            System.out.printf(Locale.ENGLISH, "%d %s sessions opened in %d ms, per session: p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    CLIENTS, TRANSPORT, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - setupStart),
+                    setup.getValueAtPercentile(50) / 1000.0, setup.getValueAtPercentile(99) / 1000.0, setup.getMaxValue() / 1000.0);
+
+            Map<String, Stats> stats = new LinkedHashMap<>();
+            mix.keySet().forEach(tool -> stats.put(tool, new Stats()));
+
+            long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+            long end = warmupEnd + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+            List<Future<?>> workers = new ArrayList<>();
+            for (Session session : sessions) {
+                workers.add(executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        String tool = pick(mix, totalWeight);
+                        Stats toolStats = stats.get(tool);
+                        long start = System.nanoTime();
+                        boolean failed;
+                        try {
+                            CallToolResult result = session.callTool(new CallToolRequest(tool, arguments(tool)));
+                            failed = Boolean.TRUE.equals(result.isError());
+                        } catch (Exception e) {
+                            failed = true;
+                        }
+                        long stop = System.nanoTime();
+                        // Only calls made entirely within the measurement count
+                        if (start >= warmupEnd && stop <= end) {
+                            toolStats.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(stop - start));
+                            if (failed) {
+                                toolStats.errors.increment();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            System.out.printf("Warming up for %d s, then measuring for %d s%n", WARMUP_SECONDS, DURATION_SECONDS);
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            stats.values().forEach(s -> s.histogram = s.latencies.getIntervalHistogram());
+
+            report(stats);
+        } finally {
+            for (Session session : sessions) {
+                try {
+                    session.close();
+                } catch (Exception e) {
+                    // The server may be gone already
+                }
+            }
+            executor.shutdownNow();
+            if (server != null) {
+                server.destroy();
+                server.waitFor(10, TimeUnit.SECONDS);
+            }
+            upstream.stop();
+        }
+        System.exit(0);
+    }
+
+
+    private static Session openSession(String serverUrl, String upstreamUrl) throws Exception {
+        if ("streamable".equals(TRANSPORT)) {
+            StreamableClient client = new StreamableClient(serverUrl + "/mcp");
+            client.initialize();
+            return new Session() {
+                @Override
+                public CallToolResult callTool(CallToolRequest request) throws Exception {
+                    return client.callTool(request);
+                }
+
+                @Override
+                public void close() throws Exception {
+                    client.close();
+                }
+            };
+        }
+
+        McpSyncClient client;
+        if ("stdio".equals(TRANSPORT)) {
+            ServerParameters.Builder parameters = ServerParameters.builder(JAVA)
+                    .arg("-Dmcp.weather.upstream.url=" + upstreamUrl);
+            for (String arg : jvmArgs()) {
+                parameters.arg(arg);
+            }
+            client = McpClient.sync(new StdioClientTransport(parameters.arg("-jar").arg(SERVER_JAR).build()))
+                    .requestTimeout(Duration.ofSeconds(30))
+                    .build();
+        } else if ("sse".equals(TRANSPORT)) {
+            client = McpClient.sync(HttpClientSseClientTransport.builder(serverUrl).sseEndpoint("/sse").build())
+                    .requestTimeout(Duration.ofSeconds(30))
+                    .build();
+        } else {
+            throw new IllegalArgumentException("Unknown load.transport: " + TRANSPORT);
+        }
+        client.initialize();
+        return new Session() {
+            @Override
+            public CallToolResult callTool(CallToolRequest request) {
+                return client.callTool(request);
+            }
+
+            @Override
+            public void close() {
+                client.closeGracefully();
+            }
+        };
+    }
+
+
+    /**
+     * Start the HTTP server of the jar under test, and wait until it accepts connections.
+     */
+    private static Process startHttpServer(String upstreamUrl) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(JAVA, "-Dmcp.weather.upstream.url=" + upstreamUrl,
+                "-Dmcp.weather.server.port=" + SERVER_PORT, "-Dmcp.weather.server.transport=" + TRANSPORT));
+        command.addAll(jvmArgs());
+        command.addAll(List.of("-cp", SERVER_JAR, "com.metricool.mcp.weather.server.McpSseServer"));
+        File log = new File("target/load-server.log");
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.to(log))
+                .start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Server exited with " + process.exitValue() + ", see " + log);
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", SERVER_PORT), 100);
+                return process;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        process.destroy();
+        throw new IOException("Server did not listen on port " + SERVER_PORT + " within 30 s, see " + log);
+    }
+
+
+    private static List<String> jvmArgs() {
+        return SERVER_JVM_ARGS.isBlank() ? List.of() : List.of(SERVER_JVM_ARGS.trim().split("\\s+"));
+    }
+
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] toolWeight = entry.trim().split("=");
+            weights.put(toolWeight[0], toolWeight.length > 1 ? Integer.parseInt(toolWeight[1]) : 1);
+        }
+        return weights;
+    }
+
+
+    private static String pick(Map<String, Integer> mix, int totalWeight) {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+
+    /**
+     * Arguments of a tool call, for a random city or state. Locations vary in the fourth decimal,
+     * like the coordinates agents send for the same city.
+     */
+    private static Map<String, Object> arguments(String tool) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (tool) {
+            case "get_weather_forecast_by_location" -> location(random);
+            case "get_weather_forecast_by_locations" -> Map.of("locations", List.of(location(random), location(random), location(random)));
+            case "get_alerts" -> Map.of("code", STATES[random.nextInt(STATES.length)]);
+            default -> throw new IllegalArgumentException("No arguments for tool " + tool);
+        };
+    }
+
+
+    private static Map<String, Object> location(ThreadLocalRandom random) {
+        double[] city = CITIES[random.nextInt(CITIES.length)];
+        return Map.of("latitude", city[0] + random.nextInt(-5, 6) / 10_000.0,
+                "longitude", city[1] + random.nextInt(-5, 6) / 10_000.0);
+    }
+
+
+    private static void report(Map<String, Stats> stats) {
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        System.out.printf("%n%-36s %10s %8s %9s %9s %9s %9s %9s %9s%n",
+                "tool", "calls/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "error %");
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Histogram histogram = entry.getValue().histogram;
+            long errors = entry.getValue().errors.sum();
+            total.add(histogram);
+            totalErrors += errors;
+            printRow(entry.getKey(), histogram, errors);
+        }
+        printRow("total", total, totalErrors);
+    }
+
+
+    private static void printRow(String name, Histogram histogram, long errors) {
+        long calls = histogram.getTotalCount();
+        System.out.printf(Locale.ENGLISH, "%-36s %10.1f %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.2f%n",
+                name, calls / (double) DURATION_SECONDS, errors,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0, calls == 0 ? 0.0 : 100.0 * errors / calls);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metricool.mcp.weather.service.NwsParser;
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+import com.metricool.mcp.weather.service.WeatherService.Forecast;
+import com.metricool.mcp.weather.service.WeatherService.Points;
+
+
+/**
+ * Deserialization of the {@code Points}, {@code Forecast} and {@code Alert} records.
+ *
+ * The {@code streaming*} benchmarks are the current {@link NwsParser} path, reading straight from
+ * the response bytes. The {@code bindString*} ones are the former path: the body decoded to a
+ * String, then bound with {@code ObjectMapper.readValue}. Run with {@code -prof gc} to compare allocation.
+ * {@code streamingAlertsGzip} adds decompressing a gzip response while it is parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] points;
+    private byte[] forecast;
+    private byte[] alerts;
+    private byte[] gzippedAlerts;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        points = Fixtures.read(Fixtures.POINTS);
+        forecast = Fixtures.read(Fixtures.FORECAST);
+        alerts = Fixtures.read(Fixtures.ALERTS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(alerts);
+        }
+        gzippedAlerts = out.toByteArray();
+    }
+
+
+    @Benchmark
+    public Points streamingPoints() throws IOException {
+        return NwsParser.parsePoints(new ByteArrayInputStream(points));
+    }
+
+
+    @Benchmark
+    public Forecast streamingForecast() throws IOException {
+        return NwsParser.parseForecast(new ByteArrayInputStream(forecast));
+    }
+
+
+    @Benchmark
+    public Alert streamingAlerts() throws IOException {
+        return NwsParser.parseAlerts(new ByteArrayInputStream(alerts));
+    }
+
+
+    @Benchmark
+    public Alert streamingAlertsGzip() throws IOException {
+        return NwsParser.parseAlerts(new GZIPInputStream(new ByteArrayInputStream(gzippedAlerts), 8192));
+    }
+
+
+    @Benchmark
+    public Points bindStringPoints() throws IOException {
+        return objectMapper.readValue(new String(points, StandardCharsets.UTF_8), Points.class);
+    }
+
+
+    @Benchmark
+    public Forecast bindStringForecast() throws IOException {
+        return objectMapper.readValue(new String(forecast, StandardCharsets.UTF_8), Forecast.class);
+    }
+
+
+    @Benchmark
+    public Alert bindStringAlerts() throws IOException {
+        return objectMapper.readValue(new String(alerts, StandardCharsets.UTF_8), Alert.class);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metricool.mcp.weather.service.NwsParser;
+import com.metricool.mcp.weather.service.WeatherService;
+import com.metricool.mcp.weather.service.WeatherService.Points;
+import com.metricool.mcp.weather.upstream.NwsStandInServer;
+
+
+/**
+ * Per-call setup against shared instances.
+ *
+ * The {@code perCall*} benchmarks build what a tool call used to build on every invocation: a
+ * {@link WeatherService} with its client, or an {@code ObjectMapper} that has to resolve the record
+ * deserializers again. The {@code shared*} ones reuse the instances registered once by
+ * {@code McpTools.addAllTo}. Upstream responses are cacheable, so after the first call only the
+ * setup, a cache hit and the rendering are measured. Run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SetupBenchmark {
+
+    private NwsStandInServer upstream;
+    private WeatherService weatherService;
+    private byte[] points;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        upstream = new NwsStandInServer(0, 0, 0, 0.0, "max-age=3600");
+        // Must happen before WeatherService is loaded, which reads upstream.url once
+        System.setProperty("mcp.weather.upstream.url", upstream.start());
+
+        weatherService = new WeatherService();
+        weatherService.getAlerts("NY");
+        points = Fixtures.read(Fixtures.POINTS);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        upstream.stop();
+    }
+
+
+    @Benchmark
+    public String perCallService() throws IOException, InterruptedException {
+        return new WeatherService().getAlerts("NY");
+    }
+
+
+    @Benchmark
+    public String sharedService() throws IOException, InterruptedException {
+        return weatherService.getAlerts("NY");
+    }
+
+
+    @Benchmark
+    public Points perCallMapper() throws IOException {
+        return new ObjectMapper().readValue(new ByteArrayInputStream(points), Points.class);
+    }
+
+
+    @Benchmark
+    public Points sharedReader() throws IOException {
+        return NwsParser.parsePoints(new ByteArrayInputStream(points));
+    }
+
+}
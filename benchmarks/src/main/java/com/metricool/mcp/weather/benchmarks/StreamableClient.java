@@ -0,0 +1,81 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.metricool.mcp.weather.transport.StreamableHttpServerTransportProvider;
+import com.metricool.mcp.weather.utils.Json;
+
+import io.modelcontextprotocol.spec.McpSchema;
+
+
+/**
+ * Minimal MCP client for the stateless streamable HTTP transport: each message is a POST, the
+ * session lives in the {@code Mcp-Session-Id} header. The SDK has no client for this transport yet.
+ */
+class StreamableClient {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI uri;
+    private final AtomicLong ids = new AtomicLong();
+    private String sessionId;
+
+
+    StreamableClient(String url) {
+        this.uri = URI.create(url);
+    }
+
+
+    void initialize() throws IOException, InterruptedException {
+        McpSchema.InitializeRequest initialize = new McpSchema.InitializeRequest(McpSchema.LATEST_PROTOCOL_VERSION,
+                McpSchema.ClientCapabilities.builder().build(), new McpSchema.Implementation("benchmark", "1"));
+        HttpResponse<byte[]> response = post(new McpSchema.JSONRPCRequest(McpSchema.JSONRPC_VERSION,
+                McpSchema.METHOD_INITIALIZE, ids.incrementAndGet(), initialize));
+        sessionId = response.headers().firstValue(StreamableHttpServerTransportProvider.SESSION_ID_HEADER)
+                .orElseThrow(() -> new IOException("No session id in " + new String(response.body())));
+        post(new McpSchema.JSONRPCNotification(McpSchema.JSONRPC_VERSION, McpSchema.METHOD_NOTIFICATION_INITIALIZED, null));
+    }
+
+
+    McpSchema.CallToolResult callTool(McpSchema.CallToolRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = post(new McpSchema.JSONRPCRequest(McpSchema.JSONRPC_VERSION,
+                McpSchema.METHOD_TOOLS_CALL, ids.incrementAndGet(), request));
+        McpSchema.JSONRPCResponse message = Json.MAPPER.readValue(response.body(), McpSchema.JSONRPCResponse.class);
+        if (message.error() != null) {
+            throw new IOException(message.error().message());
+        }
+        return Json.MAPPER.convertValue(message.result(), McpSchema.CallToolResult.class);
+    }
+
+
+    void close() throws IOException, InterruptedException {
+        httpClient.send(HttpRequest.newBuilder(uri)
+                .header(StreamableHttpServerTransportProvider.SESSION_ID_HEADER, sessionId)
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+
+    private HttpResponse<byte[]> post(Object message) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(Json.MAPPER.writeValueAsBytes(message)));
+        if (sessionId != null) {
+            builder.header(StreamableHttpServerTransportProvider.SESSION_ID_HEADER, sessionId);
+        }
+        HttpResponse<byte[]> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IOException("HTTP " + response.statusCode() + ": " + new String(response.body()));
+        }
+        return response;
+    }
+}
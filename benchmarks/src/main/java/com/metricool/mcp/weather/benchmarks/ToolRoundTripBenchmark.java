@@ -0,0 +1,143 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.metricool.mcp.weather.tools.McpTools;
+import com.metricool.mcp.weather.upstream.NwsStandInServer;
+import com.metricool.mcp.weather.utils.Json;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.server.transport.HttpServletSseServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+
+
+/**
+ * Complete {@link CallToolRequest} round trips: MCP client, SSE transport, server, tool, and the
+ * upstream hops to a local {@link NwsStandInServer}.
+ *
+ * {@code cacheControl} selects whether the stand-in lets the server cache responses
+ * ({@code max-age}) or forces upstream requests on every call ({@code no-store}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ToolRoundTripBenchmark {
+
+    private static final double LATITUDE = 47.6062;
+    private static final double LONGITUDE = -122.3321;
+
+    @Param({"no-store", "max-age=3600"})
+    public String cacheControl;
+
+    @Param({"sync", "async"})
+    public String serverMode;
+
+    private NwsStandInServer upstream;
+    private Server httpServer;
+    private McpSyncServer syncServer;
+    private McpAsyncServer asyncServer;
+    private McpSyncClient client;
+    private CallToolRequest forecastRequest;
+    private CallToolRequest alertsRequest;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        upstream = new NwsStandInServer(0, 0, 0, 0.0, cacheControl);
+        // Must happen before WeatherService is loaded, which reads upstream.url once
+        System.setProperty("mcp.weather.upstream.url", upstream.start());
+
+        HttpServletSseServerTransportProvider transport = new HttpServletSseServerTransportProvider(
+                Json.MAPPER, "/mcp/message", "/sse");
+        McpSchema.ServerCapabilities capabilities = McpSchema.ServerCapabilities.builder().tools(true).build();
+        if ("async".equals(serverMode)) {
+            asyncServer = McpServer.async(transport).serverInfo("benchmark", "1").capabilities(capabilities).build();
+            McpTools.addAllTo(asyncServer);
+        } else {
+            syncServer = McpServer.sync(transport).serverInfo("benchmark", "1").capabilities(capabilities).build();
+            McpTools.addAllTo(syncServer);
+        }
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(transport), "/*");
+        httpServer = new Server();
+        ServerConnector connector = new ServerConnector(httpServer);
+        httpServer.addConnector(connector);
+        httpServer.setHandler(context);
+        httpServer.start();
+
+        client = McpClient.sync(HttpClientSseClientTransport.builder("http://localhost:" + connector.getLocalPort())
+                        .sseEndpoint("/sse")
+                        .build())
+                .requestTimeout(Duration.ofSeconds(10))
+                .build();
+        client.initialize();
+
+        forecastRequest = new CallToolRequest("get_weather_forecast_by_location", Map.of("latitude", LATITUDE, "longitude", LONGITUDE));
+        alertsRequest = new CallToolRequest("get_alerts", Map.of("code", "NY"));
+        for (CallToolRequest request : new CallToolRequest[] { forecastRequest, alertsRequest }) {
+            CallToolResult result = client.callTool(request);
+            if (Boolean.TRUE.equals(result.isError())) {
+                throw new IllegalStateException("Tool call failed: " + result.content());
+            }
+        }
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.closeGracefully();
+        if (syncServer != null) {
+            syncServer.close();
+        }
+        if (asyncServer != null) {
+            asyncServer.close();
+        }
+        httpServer.stop();
+        upstream.stop();
+    }
+
+
+    @Benchmark
+    public CallToolResult callForecastTool() {
+        return client.callTool(forecastRequest);
+    }
+
+
+    @Benchmark
+    public CallToolResult callAlertsTool() {
+        return client.callTool(alertsRequest);
+    }
+
+}
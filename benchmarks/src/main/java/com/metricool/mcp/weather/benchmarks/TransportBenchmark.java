@@ -0,0 +1,162 @@
+package com.metricool.mcp.weather.benchmarks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.metricool.mcp.weather.tools.McpTools;
+import com.metricool.mcp.weather.transport.InMemorySessionStore;
+import com.metricool.mcp.weather.transport.SignedSessionStore;
+import com.metricool.mcp.weather.transport.StreamableHttpServerTransportProvider;
+import com.metricool.mcp.weather.upstream.NwsStandInServer;
+import com.metricool.mcp.weather.utils.Json;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.transport.HttpServletSseServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import jakarta.servlet.http.HttpServlet;
+
+
+/**
+ * Throughput of many concurrent MCP clients, one per benchmark thread, over the SSE transport and
+ * over the stateless streamable HTTP transport with each session store.
+ *
+ * Upstream responses are cached, so the transports dominate. After each iteration the number of
+ * connections open on the server is printed: SSE keeps a stream per client on the node that
+ * initialized it, streamable HTTP only the kept-alive connections of requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final CallToolRequest FORECAST_REQUEST = new CallToolRequest("get_weather_forecast_by_location",
+            Map.of("latitude", 47.6062, "longitude", -122.3321));
+
+    @Param({"sse", "streamable-memory", "streamable-signed"})
+    public String transport;
+
+    private NwsStandInServer upstream;
+    private Server httpServer;
+    private ServerConnector connector;
+    private McpAsyncServer server;
+    private String baseUrl;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        upstream = new NwsStandInServer(0, 0, 0, 0.0, "max-age=3600");
+        // Must happen before WeatherService is loaded, which reads upstream.url once
+        System.setProperty("mcp.weather.upstream.url", upstream.start());
+
+        McpServerTransportProvider provider = switch (transport) {
+            case "sse" -> new HttpServletSseServerTransportProvider(Json.MAPPER, "/mcp/message", "/sse");
+            case "streamable-memory" -> new StreamableHttpServerTransportProvider(Json.MAPPER, new InMemorySessionStore());
+            case "streamable-signed" -> new StreamableHttpServerTransportProvider(Json.MAPPER,
+                    new SignedSessionStore("benchmark".getBytes(), TimeUnit.HOURS.toMillis(1)));
+            default -> throw new IllegalArgumentException(transport);
+        };
+        server = McpServer.async(provider).serverInfo("benchmark", "1")
+                .capabilities(McpSchema.ServerCapabilities.builder().tools(true).build()).build();
+        McpTools.addAllTo(server);
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder((HttpServlet) provider), "sse".equals(transport) ? "/*" : "/mcp");
+        httpServer = new Server();
+        connector = new ServerConnector(httpServer);
+        httpServer.addConnector(connector);
+        httpServer.setHandler(context);
+        httpServer.start();
+        baseUrl = "http://localhost:" + connector.getLocalPort();
+    }
+
+
+    @TearDown(Level.Iteration)
+    public void printConnections() {
+        System.out.println("\nOpen server connections: " + connector.getConnectedEndPoints().size());
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+        httpServer.stop();
+        upstream.stop();
+    }
+
+
+    /**
+     * One MCP client per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private McpSyncClient sseClient;
+        private StreamableClient streamableClient;
+
+        @Setup(Level.Trial)
+        public void setUp(TransportBenchmark benchmark) throws Exception {
+            if ("sse".equals(benchmark.transport)) {
+                sseClient = McpClient.sync(HttpClientSseClientTransport.builder(benchmark.baseUrl).sseEndpoint("/sse").build())
+                        .requestTimeout(Duration.ofSeconds(10))
+                        .build();
+                sseClient.initialize();
+            } else {
+                streamableClient = new StreamableClient(benchmark.baseUrl + "/mcp");
+                streamableClient.initialize();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            if (sseClient != null) {
+                sseClient.closeGracefully();
+            }
+            if (streamableClient != null) {
+                streamableClient.close();
+            }
+        }
+
+        CallToolResult callTool(CallToolRequest request) throws Exception {
+            return sseClient != null ? sseClient.callTool(request) : streamableClient.callTool(request);
+        }
+    }
+
+
+    @Benchmark
+    public CallToolResult callForecastTool(Client client) throws Exception {
+        return client.callTool(FORECAST_REQUEST);
+    }
+
+}
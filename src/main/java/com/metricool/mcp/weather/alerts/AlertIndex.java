@@ -0,0 +1,203 @@
+package com.metricool.mcp.weather.alerts;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+
+
+/**
+ * In-memory index of the active alerts, by state, zone and severity.
+ *
+ * It is kept up to date by diff: {@link #apply(List)} takes the whole active feed, adds the
+ * alerts whose id is new and removes the ones that are no longer listed. Alerts past their
+ * {@code expires} time are left out of the results before the next feed drops them.
+ *
+ * A state is the area prefix of a UGC zone code ({@code NY} for {@code NYZ072}), so marine
+ * areas such as {@code AN} index like states, as in the {@code /alerts/active/area} endpoint.
+ * Results are sorted newest first, as the upstream feed is. All operations are synchronized.
+ */
+public class AlertIndex {
+
+    /**
+     * Alert ids added and removed by one {@link #apply(List)}, and the states they touched.
+     */
+    public record Diff(Set<String> added, Set<String> removed, Set<String> states) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private record Entry(Alert.Feature feature, String id, long sent, long expiresAt,
+            Set<String> states, Set<String> zones, String severity) {
+
+        boolean isExpired(long now) {
+            return expiresAt < now;
+        }
+    }
+
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator.comparingLong(Entry::sent).reversed()
+            .thenComparing(Entry::id);
+
+    private final Map<String, Entry> alerts = new HashMap<>();
+    private final Map<String, NavigableSet<Entry>> byState = new HashMap<>();
+    private final Map<String, NavigableSet<Entry>> byZone = new HashMap<>();
+    private final Map<String, NavigableSet<Entry>> bySeverity = new HashMap<>();
+
+
+    /**
+     * Bring the index in line with the complete list of active alerts.
+     *
+     * @return what changed
+     */
+    public synchronized Diff apply(List<Alert.Feature> features) {
+        Map<String, Alert.Feature> active = new HashMap<>();
+        for (Alert.Feature feature : features) {
+            if (feature.properties() != null && feature.properties().id() != null) {
+                active.put(feature.properties().id(), feature);
+            }
+        }
+
+        Set<String> removed = new LinkedHashSet<>();
+        Set<String> states = new LinkedHashSet<>();
+        for (Entry entry : new ArrayList<>(alerts.values())) {
+            if (!active.containsKey(entry.id())) {
+                remove(entry);
+                removed.add(entry.id());
+                states.addAll(entry.states());
+            }
+        }
+
+        Set<String> added = new LinkedHashSet<>();
+        for (Map.Entry<String, Alert.Feature> feature : active.entrySet()) {
+            if (!alerts.containsKey(feature.getKey())) {
+                Entry entry = add(feature.getValue());
+                added.add(entry.id());
+                states.addAll(entry.states());
+            }
+        }
+
+        return new Diff(added, removed, states);
+    }
+
+
+    /**
+     * @param state two-letter state or marine area code, e.g. NY
+     */
+    public synchronized Alert byState(String state) {
+        return select(byState, state.toUpperCase(Locale.ENGLISH));
+    }
+
+
+    /**
+     * @param zone UGC zone code, e.g. NYZ072
+     */
+    public synchronized Alert byZone(String zone) {
+        return select(byZone, zone.toUpperCase(Locale.ENGLISH));
+    }
+
+
+    /**
+     * @param severity Extreme, Severe, Moderate, Minor or Unknown
+     */
+    public synchronized Alert bySeverity(String severity) {
+        return select(bySeverity, severity.toLowerCase(Locale.ENGLISH));
+    }
+
+
+    public synchronized int size() {
+        return alerts.size();
+    }
+
+
+    private Alert select(Map<String, NavigableSet<Entry>> index, String key) {
+        NavigableSet<Entry> entries = index.get(key);
+        if (entries == null) {
+            return new Alert(List.of());
+        }
+        long now = System.currentTimeMillis();
+        List<Alert.Feature> features = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (!entry.isExpired(now)) {
+                features.add(entry.feature());
+            }
+        }
+        return new Alert(features);
+    }
+
+
+    private Entry add(Alert.Feature feature) {
+        Alert.Properties properties = feature.properties();
+        Set<String> zones = new LinkedHashSet<>();
+        Set<String> states = new LinkedHashSet<>();
+        if (properties.geocode() != null && properties.geocode().ugc() != null) {
+            for (String ugc : properties.geocode().ugc()) {
+                String zone = ugc.toUpperCase(Locale.ENGLISH);
+                zones.add(zone);
+                if (zone.length() >= 2) {
+                    states.add(zone.substring(0, 2));
+                }
+            }
+        }
+        String severity = properties.severity() == null ? "unknown" : properties.severity().toLowerCase(Locale.ENGLISH);
+
+        Entry entry = new Entry(feature, properties.id(), parseTime(properties.sent(), 0),
+                parseTime(properties.expires(), Long.MAX_VALUE), states, zones, severity);
+        alerts.put(entry.id(), entry);
+        for (String state : states) {
+            byState.computeIfAbsent(state, k -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+        }
+        for (String zone : zones) {
+            byZone.computeIfAbsent(zone, k -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+        }
+        bySeverity.computeIfAbsent(severity, k -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+        return entry;
+    }
+
+
+    private void remove(Entry entry) {
+        alerts.remove(entry.id());
+        for (String state : entry.states()) {
+            removeFrom(byState, state, entry);
+        }
+        for (String zone : entry.zones()) {
+            removeFrom(byZone, zone, entry);
+        }
+        removeFrom(bySeverity, entry.severity(), entry);
+    }
+
+
+    private static void removeFrom(Map<String, NavigableSet<Entry>> index, String key, Entry entry) {
+        NavigableSet<Entry> entries = index.get(key);
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+
+    private static long parseTime(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return defaultValue;
+        }
+    }
+
+}
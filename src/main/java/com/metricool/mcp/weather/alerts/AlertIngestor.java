@@ -0,0 +1,139 @@
+package com.metricool.mcp.weather.alerts;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Gauge;
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+
+
+/**
+ * Polls the national active alerts feed on a schedule and keeps an {@link AlertIndex} of it.
+ *
+ * One upstream request per interval replaces one request per {@code get_alerts} call and state.
+ * The index only answers while it is recent: once polls have failed for longer than the maximum
+ * staleness, {@link #isFresh()} turns false and callers go back to the upstream.
+ */
+public class AlertIngestor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertIngestor.class);
+
+    private static final Counter POLLS = Metrics.REGISTRY.counter("alerts_ingest_polls_total",
+            "Polls of the national alerts feed.", "result");
+    private static final Counter CHANGES = Metrics.REGISTRY.counter("alerts_ingest_changes_total",
+            "Alerts added to or removed from the index.", "change");
+    private static final Counter LISTENER_ERRORS = Metrics.REGISTRY.counter("alerts_ingest_listener_errors_total",
+            "Alert index listeners that failed on a change.");
+    private static final Gauge INDEX_SIZE = Metrics.REGISTRY.gauge("alerts_index_size",
+            "Active alerts held in the index.");
+
+    /**
+     * Fetches the complete list of active alerts.
+     */
+    @FunctionalInterface
+    public interface Feed {
+        Alert fetch() throws Exception;
+    }
+
+    private final Feed feed;
+    private final long intervalMillis;
+    private final long maxStalenessMillis;
+    private final AlertIndex index = new AlertIndex();
+    private final List<Consumer<AlertIndex.Diff>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile long lastSuccess;
+
+
+    public AlertIngestor(Feed feed, long intervalMillis, long maxStalenessMillis) {
+        this.feed = feed;
+        this.intervalMillis = intervalMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-ingestor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Poll now, then every interval.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+
+    /**
+     * Called with every non-empty change of the index, on the ingestor thread.
+     */
+    public void addListener(Consumer<AlertIndex.Diff> listener) {
+        listeners.add(listener);
+    }
+
+
+    /**
+     * Fetch the feed once and apply it to the index.
+     */
+    void poll() {
+        AlertIndex.Diff diff;
+        try {
+            Alert alert = feed.fetch();
+            diff = index.apply(alert.features());
+            lastSuccess = System.currentTimeMillis();
+            POLLS.inc("success");
+            CHANGES.add(diff.added().size(), "added");
+            CHANGES.add(diff.removed().size(), "removed");
+            INDEX_SIZE.value().set(index.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            // Keep polling: the index is served until it is too stale
+            POLLS.inc("error");
+            logger.warn("Alert feed poll failed: {}", e.toString());
+            return;
+        }
+
+        if (!diff.isEmpty()) {
+            logger.debug("Alert index updated: {} added, {} removed", diff.added().size(), diff.removed().size());
+            for (Consumer<AlertIndex.Diff> listener : listeners) {
+                try {
+                    listener.accept(diff);
+                } catch (RuntimeException e) {
+                    // The other listeners are still told
+                    LISTENER_ERRORS.inc();
+                    logger.warn("Alert index listener failed", e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return true if the index reflects a poll recent enough to answer from
+     */
+    public boolean isFresh() {
+        return lastSuccess > 0 && System.currentTimeMillis() - lastSuccess <= maxStalenessMillis;
+    }
+
+
+    public AlertIndex getIndex() {
+        return index;
+    }
+
+}
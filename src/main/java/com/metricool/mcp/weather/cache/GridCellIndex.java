@@ -0,0 +1,212 @@
+package com.metricool.mcp.weather.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Gauge;
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * Spatial index of the NWS forecast grid cells seen so far, resolving any location inside a known
+ * cell to its gridpoint forecast URL without a {@code /points} request.
+ *
+ * Every forecast response carries the polygon of its grid cell (about 2.5 km across), so cells are
+ * learned as forecasts are fetched. Cells are stored in parallel primitive arrays: their bounding
+ * boxes and their vertices as flat longitude/latitude pairs. A coarse grid of
+ * {@value #BUCKET_DEGREES} degree buckets lists the cells overlapping each bucket, so a lookup only
+ * tests the few cells around the location, first against their bounding box and then against
+ * their polygon.
+ *
+ * Grid cells only change when NWS redraws its grid. When {@code gridindex.max-cells} is reached the
+ * index is cleared and learned again.
+ */
+public class GridCellIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GridCellIndex.class);
+
+    private static final Counter LOOKUPS = Metrics.REGISTRY.counter("gridindex_lookups_total",
+            "Grid cell index lookups, by result.", "result");
+    private static final Gauge CELLS = Metrics.REGISTRY.gauge("gridindex_cells",
+            "Forecast grid cells in the spatial index.");
+
+    static final double BUCKET_DEGREES = 0.05;
+    private static final double MAX_CELL_DEGREES = 0.5;
+
+    private static final int[] NO_CELLS = new int[0];
+
+    private final int maxCells;
+
+    private int size;
+    private double[] minLat = new double[64];
+    private double[] maxLat = new double[64];
+    private double[] minLon = new double[64];
+    private double[] maxLon = new double[64];
+    private double[][] vertices = new double[64][];
+    private String[] forecastUrls = new String[64];
+
+    private final Map<String, Integer> cellsByUrl = new HashMap<>();
+    private final Map<Long, int[]> buckets = new HashMap<>();
+
+
+    public GridCellIndex() {
+        this(Config.getInt("gridindex.max-cells", 50_000));
+    }
+
+
+    public GridCellIndex(int maxCells) {
+        this.maxCells = maxCells;
+    }
+
+
+    /**
+     * Add the cell of a forecast, or replace its polygon if the forecast URL is already known.
+     *
+     * @param polygon the longitude/latitude pairs of the cell outline, as in GeoJSON
+     */
+    public synchronized void add(double[] polygon, String forecastUrl) {
+        if (polygon.length < 6 || polygon.length % 2 != 0) {
+            return;
+        }
+        double south = Double.POSITIVE_INFINITY;
+        double north = Double.NEGATIVE_INFINITY;
+        double west = Double.POSITIVE_INFINITY;
+        double east = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < polygon.length; i += 2) {
+            west = Math.min(west, polygon[i]);
+            east = Math.max(east, polygon[i]);
+            south = Math.min(south, polygon[i + 1]);
+            north = Math.max(north, polygon[i + 1]);
+        }
+        if (north - south > MAX_CELL_DEGREES || east - west > MAX_CELL_DEGREES) {
+            // Not a grid cell
+            return;
+        }
+
+        Integer known = cellsByUrl.get(forecastUrl);
+        if (known != null) {
+            if (Arrays.equals(vertices[known], polygon)) {
+                return;
+            }
+            // The grid was redrawn: the stale polygon may still be listed in other buckets
+            clear();
+        }
+        if (size == maxCells) {
+            logger.info("Grid cell index reached {} cells, clearing it", maxCells);
+            clear();
+        }
+
+        int cell = size++;
+        if (cell == forecastUrls.length) {
+            grow();
+        }
+        minLat[cell] = south;
+        maxLat[cell] = north;
+        minLon[cell] = west;
+        maxLon[cell] = east;
+        vertices[cell] = polygon.clone();
+        forecastUrls[cell] = forecastUrl;
+        cellsByUrl.put(forecastUrl, cell);
+
+        for (long row = bucket(south); row <= bucket(north); row++) {
+            for (long column = bucket(west); column <= bucket(east); column++) {
+                buckets.merge(bucketKey(row, column), new int[] {cell}, GridCellIndex::concat);
+            }
+        }
+        CELLS.value().set(size);
+    }
+
+
+    /**
+     * @return the forecast URL of the known cell containing the location, or null if there is none
+     */
+    public synchronized String find(double latitude, double longitude) {
+        for (int cell : buckets.getOrDefault(bucketKey(bucket(latitude), bucket(longitude)), NO_CELLS)) {
+            if (latitude >= minLat[cell] && latitude <= maxLat[cell] && longitude >= minLon[cell] && longitude <= maxLon[cell]
+                    && contains(vertices[cell], latitude, longitude)) {
+                LOOKUPS.inc("hit");
+                return forecastUrls[cell];
+            }
+        }
+        LOOKUPS.inc("miss");
+        return null;
+    }
+
+
+    /**
+     * @return the outline of the known cell of a forecast, as longitude/latitude pairs, or null if there is none
+     */
+    public synchronized double[] polygon(String forecastUrl) {
+        Integer cell = cellsByUrl.get(forecastUrl);
+        return cell == null ? null : vertices[cell].clone();
+    }
+
+
+    public synchronized int size() {
+        return size;
+    }
+
+
+    /**
+     * Even-odd ray casting: whether a ray going east from the location crosses the outline an odd
+     * number of times.
+     */
+    static boolean contains(double[] polygon, double latitude, double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.length - 2; i < polygon.length; j = i, i += 2) {
+            double lonI = polygon[i];
+            double latI = polygon[i + 1];
+            double lonJ = polygon[j];
+            double latJ = polygon[j + 1];
+            if ((latI > latitude) != (latJ > latitude)
+                    && longitude < (lonJ - lonI) * (latitude - latI) / (latJ - latI) + lonI) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+
+    private void clear() {
+        size = 0;
+        Arrays.fill(vertices, null);
+        Arrays.fill(forecastUrls, null);
+        cellsByUrl.clear();
+        buckets.clear();
+    }
+
+
+    private void grow() {
+        int capacity = Math.min(forecastUrls.length * 2, Math.max(maxCells, forecastUrls.length + 1));
+        minLat = Arrays.copyOf(minLat, capacity);
+        maxLat = Arrays.copyOf(maxLat, capacity);
+        minLon = Arrays.copyOf(minLon, capacity);
+        maxLon = Arrays.copyOf(maxLon, capacity);
+        vertices = Arrays.copyOf(vertices, capacity);
+        forecastUrls = Arrays.copyOf(forecastUrls, capacity);
+    }
+
+
+    private static long bucket(double degrees) {
+        return (long) Math.floor(degrees / BUCKET_DEGREES);
+    }
+
+
+    private static Long bucketKey(long row, long column) {
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+
+
+    private static int[] concat(int[] cells, int[] cell) {
+        int[] merged = Arrays.copyOf(cells, cells.length + 1);
+        merged[cells.length] = cell[0];
+        return merged;
+    }
+
+}
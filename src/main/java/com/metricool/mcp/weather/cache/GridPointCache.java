@@ -0,0 +1,234 @@
+package com.metricool.mcp.weather.cache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * Cache of the {@code /points/{lat},{lon}} lookup, which resolves a location to its gridpoint
+ * forecast URL.
+ *
+ * Coordinates are snapped to {@code gridcache.resolution} degrees (by default 0.01, well below
+ * the 2.5 km NWS grid spacing) so nearby requests share one entry. Entries live in a bounded
+ * in-memory LRU and, when {@code gridcache.file} is set, in a properties file that survives
+ * restarts. Mappings only change when NWS redraws its grid, so the default TTL is a week.
+ *
+ * The file tier is another LRU, of {@code gridcache.file.max-entries}, written off the request
+ * path: every {@code gridcache.file.flush.seconds} when it changed, once {@link #start()}ed, and
+ * on {@link #stop()}.
+ *
+ * A {@link SnapshotStore} can be set as another tier, between memory and the file.
+ */
+public class GridPointCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GridPointCache.class);
+
+    private final double resolution;
+    private final long ttlMillis;
+    private final LruCache<String, String> memory;
+
+    private final Path file;
+    private final LruCache<String, String> disk;
+    private final long flushMillis;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+    private volatile SnapshotStore snapshot;
+
+
+    public GridPointCache() {
+        this(Config.getDouble("gridcache.resolution", 0.01),
+                Config.getInt("gridcache.max-entries", 10_000),
+                TimeUnit.HOURS.toMillis(Config.getLong("gridcache.ttl.hours", 24 * 7)),
+                Config.get("gridcache.file", null),
+                Config.getInt("gridcache.file.max-entries", 100_000),
+                Config.getLong("gridcache.file.flush.seconds", 30) * 1000);
+    }
+
+
+    public GridPointCache(double resolution, int maxEntries, long ttlMillis, String file) {
+        this(resolution, maxEntries, ttlMillis, file, 10 * maxEntries, 30_000);
+    }
+
+
+    /**
+     * @param maxFileEntries the entries kept in the file, at most
+     * @param flushMillis    how often the file is written when it changed
+     */
+    public GridPointCache(double resolution, int maxEntries, long ttlMillis, String file, int maxFileEntries, long flushMillis) {
+        this.resolution = resolution;
+        this.ttlMillis = ttlMillis;
+        this.memory = new LruCache<>(maxEntries, ttlMillis);
+        this.file = file == null ? null : Path.of(file);
+        this.disk = new LruCache<>(maxFileEntries, ttlMillis);
+        this.flushMillis = flushMillis;
+        load();
+    }
+
+
+    /**
+     * Write the file every flush interval when it changed.
+     */
+    public synchronized void start() {
+        if (file == null || scheduler != null || flushMillis <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gridcache-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Stop the schedule and write the pending changes to the file.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        flush();
+    }
+
+
+    /**
+     * Look up the entries missing in memory in a snapshot, before the file.
+     */
+    public void setSnapshot(SnapshotStore snapshot) {
+        this.snapshot = snapshot;
+    }
+
+
+    /**
+     * Visit the entries held in memory.
+     */
+    public void forEach(LruCache.Visitor<String, String> visitor) {
+        memory.forEach(visitor);
+    }
+
+
+    /**
+     * Snap a coordinate to the cache resolution.
+     */
+    public double snap(double degrees) {
+        return Math.round(degrees / resolution) * resolution;
+    }
+
+
+    /**
+     * @return the cached forecast URL for the (snapped) location, or null on a miss
+     */
+    public String get(double latitude, double longitude) {
+        String key = key(latitude, longitude);
+        String forecastUrl = memory.get(key);
+        if (forecastUrl != null) {
+            return forecastUrl;
+        }
+        SnapshotStore.GridPoint snapshotted = snapshot == null ? null : snapshot.gridPoint(key);
+        if (snapshotted != null) {
+            memory.put(key, snapshotted.forecastUrl(), snapshotted.expiresAt());
+            return snapshotted.forecastUrl();
+        }
+        if (file == null) {
+            return null;
+        }
+
+        // Second tier: promote a persisted entry to memory, keeping its original expiration
+        long[] expiresAt = new long[1];
+        forecastUrl = disk.get(key, expiresAt);
+        if (forecastUrl != null) {
+            memory.put(key, forecastUrl, expiresAt[0]);
+        }
+        return forecastUrl;
+    }
+
+
+    public void put(double latitude, double longitude, String forecastUrl) {
+        String key = key(latitude, longitude);
+        memory.put(key, forecastUrl);
+        if (file == null) {
+            return;
+        }
+        disk.put(key, forecastUrl);
+        dirty.set(true);
+    }
+
+
+    private String key(double latitude, double longitude) {
+        return String.format(Locale.ENGLISH, "%.4f,%.4f", snap(latitude), snap(longitude));
+    }
+
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            long now = System.currentTimeMillis();
+            properties.forEach((key, value) -> {
+                int separator = value.toString().indexOf('|');
+                long expiresAt = Long.parseLong(value.toString().substring(0, separator));
+                if (expiresAt >= now) {
+                    disk.put(key.toString(), value.toString().substring(separator + 1), expiresAt);
+                }
+            });
+            logger.info("Loaded {} grid points from '{}'", disk.size(), file);
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            logger.warn("Ignoring unreadable grid point cache file '{}'", file, e);
+            disk.clear();
+        }
+    }
+
+
+    /**
+     * Write the file if it changed since it was last written.
+     */
+    synchronized void flush() {
+        if (file == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Properties properties = new Properties();
+        disk.forEach((key, forecastUrl, expiresAt) -> {
+            if (expiresAt >= now) {
+                properties.setProperty(key, expiresAt + "|" + forecastUrl);
+            }
+        });
+
+        // Write to a sibling file and move it into place, so a crash never leaves a truncated cache
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "mcp-weather grid point cache: key=expiresAt|forecastUrl");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Could not persist grid point cache to '{}'", file, e);
+        }
+    }
+
+}
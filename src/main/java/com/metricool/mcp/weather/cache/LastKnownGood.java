@@ -0,0 +1,99 @@
+package com.metricool.mcp.weather.cache;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.UpstreamException;
+
+
+/**
+ * Last successful answer of each tool request, served with a staleness note when the upstream is down.
+ *
+ * Unlike the {@link ResponseCache}, entries are kept regardless of the upstream cache headers,
+ * for {@code fallback.max-age.hours}: during an outage an old forecast beats no forecast, as long
+ * as the caller is told how old it is.
+ */
+public class LastKnownGood {
+
+    private static final Counter FALLBACKS = Metrics.REGISTRY.counter("fallback_responses_total",
+            "Tool answers served from the last known good response because the upstream failed.", "kind");
+
+    private record Snapshot(String text, long fetchedAt) {
+    }
+
+    private final LruCache<String, Snapshot> snapshots;
+
+
+    public LastKnownGood() {
+        this(Config.getInt("fallback.max-entries", 10000), Config.getLong("fallback.max-age.hours", 24) * 3600_000);
+    }
+
+
+    public LastKnownGood(int maxEntries, long maxAgeMillis) {
+        this.snapshots = new LruCache<>(maxEntries, maxAgeMillis);
+    }
+
+
+    /**
+     * Remember a successful answer.
+     *
+     * @param kind what the answer is (forecast, alerts), used to label metrics
+     */
+    public void put(String kind, String key, String text) {
+        snapshots.put(kind + ":" + key, new Snapshot(text, System.currentTimeMillis()));
+    }
+
+
+    /**
+     * The answer to serve instead of a failure.
+     *
+     * @return the last known good answer, prefixed by a note saying how old it is and why, or null
+     *         if there is none or the failure is not an upstream outage
+     */
+    public String fallback(String kind, String key, Throwable error) {
+        error = unwrap(error);
+        if (!isOutage(error)) {
+            return null;
+        }
+        Snapshot snapshot = snapshots.get(kind + ":" + key);
+        if (snapshot == null) {
+            return null;
+        }
+        FALLBACKS.inc(kind);
+        long minutes = (System.currentTimeMillis() - snapshot.fetchedAt()) / 60_000;
+        return String.format(Locale.ENGLISH, """
+                Note: the weather service is currently unavailable (%s). \
+                Showing the last known data, retrieved %s; it may be out of date.
+
+                %s""",
+                error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName(),
+                minutes == 0 ? "less than a minute ago" : minutes + " minutes ago",
+                snapshot.text());
+    }
+
+
+    /**
+     * @return whether a failure means the upstream cannot answer right now, as opposed to a bad request
+     */
+    static boolean isOutage(Throwable error) {
+        if (error instanceof UpstreamException e) {
+            return e.getStatusCode() >= 500 || e.getStatusCode() == 429;
+        }
+        // Timeouts, connection errors, open circuit, shed requests
+        return error instanceof IOException;
+    }
+
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+}
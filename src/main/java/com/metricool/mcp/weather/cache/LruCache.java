@@ -0,0 +1,110 @@
+package com.metricool.mcp.weather.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Bounded in-memory LRU cache whose entries expire after a fixed time to live.
+ *
+ * All operations are synchronized on the cache, entries are kept in access order
+ * and the least recently used one is evicted once {@code maxEntries} is exceeded.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    /**
+     * Receives the entries of the cache, see {@link LruCache#forEach(Visitor)}.
+     */
+    @FunctionalInterface
+    public interface Visitor<K, V> {
+        void visit(K key, V value, long expiresAt);
+    }
+
+    private final long ttlMillis;
+    private final Map<K, Entry<V>> entries;
+
+
+    public LruCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+
+    /**
+     * @return the cached value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+
+    /**
+     * @param expiresAt receives the expiration time of the value found, in its first element
+     * @return the cached value, or null if absent or expired
+     */
+    public synchronized V get(K key, long[] expiresAt) {
+        V value = get(key);
+        if (value != null) {
+            expiresAt[0] = entries.get(key).expiresAt();
+        }
+        return value;
+    }
+
+
+    public synchronized void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+
+    /**
+     * Put a value with an explicit expiration time, e.g. when it is promoted from a slower tier.
+     */
+    public synchronized void put(K key, V value, long expiresAt) {
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+
+    /**
+     * Visit every entry, expired or not, holding the lock of the cache.
+     */
+    public synchronized void forEach(Visitor<K, V> visitor) {
+        entries.forEach((key, entry) -> visitor.visit(key, entry.value(), entry.expiresAt()));
+    }
+
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.metricool.mcp.weather.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * Refreshes popular {@link ResponseCache} entries in the background before they expire.
+ *
+ * Every access to a key is counted. Each interval, keys with at least {@code refresh.min-hits}
+ * recent accesses whose entry expires within {@code refresh.lead.seconds} are refreshed, so
+ * frequently requested grid points and states are (almost) never read from an expired entry.
+ * Counts are halved after each scan, so they follow the recent access rate; keys that are
+ * no longer cached or requested are dropped.
+ */
+public class RefreshScheduler {
+
+    private static final class Tracked {
+        private final Runnable refresh;
+        private final AtomicLong hits = new AtomicLong();
+
+        private Tracked(Runnable refresh) {
+            this.refresh = refresh;
+        }
+    }
+
+    private final ResponseCache cache;
+    private final long intervalMillis;
+    private final long leadMillis;
+    private final long minHits;
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final AtomicLong refreshes = new AtomicLong();
+    private volatile ScheduledExecutorService scheduler;
+
+
+    public RefreshScheduler(ResponseCache cache) {
+        this(cache,
+                Config.getLong("refresh.interval.seconds", 10) * 1000,
+                Config.getLong("refresh.lead.seconds", 30) * 1000,
+                Config.getLong("refresh.min-hits", 3));
+    }
+
+
+    public RefreshScheduler(ResponseCache cache, long intervalMillis, long leadMillis, long minHits) {
+        this.cache = cache;
+        this.intervalMillis = intervalMillis;
+        this.leadMillis = leadMillis;
+        this.minHits = minHits;
+    }
+
+
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::scan, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            tracked.clear();
+        }
+    }
+
+
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+
+    /**
+     * Count an access to a key. Nothing is tracked until the scheduler is started.
+     *
+     * @param refresh starts a background refresh of the key; kept from the first access
+     */
+    public void recordAccess(String key, Runnable refresh) {
+        if (!isRunning()) {
+            return;
+        }
+        tracked.computeIfAbsent(key, k -> new Tracked(refresh)).hits.incrementAndGet();
+    }
+
+
+    /**
+     * Refresh the hot keys about to expire, and decay the access counts.
+     */
+    void scan() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Tracked>> iterator = tracked.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Tracked> item = iterator.next();
+            long hits = item.getValue().hits.getAndUpdate(h -> h / 2);
+            ResponseCache.Entry entry = cache.peek(item.getKey());
+            if (entry == null || hits == 0) {
+                iterator.remove();
+            } else if (hits >= minHits && entry.expiresAt() - now <= leadMillis) {
+                refreshes.incrementAndGet();
+                item.getValue().refresh.run();
+            }
+        }
+    }
+
+
+    /**
+     * @return number of background refreshes started
+     */
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+}
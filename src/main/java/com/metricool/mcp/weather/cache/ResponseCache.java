@@ -0,0 +1,387 @@
+package com.metricool.mcp.weather.cache;
+
+import java.net.http.HttpHeaders;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * HTTP response cache for upstream GET requests.
+ *
+ * Freshness follows the upstream {@code Cache-Control} ({@code s-maxage}, {@code max-age},
+ * {@code no-cache}, {@code no-store}) and {@code Expires} headers. Stale entries that carry an
+ * {@code ETag} or {@code Last-Modified} validator are kept, so the next request can be sent
+ * as a conditional GET and a {@code 304 Not Modified} is answered from the cache.
+ *
+ * Within the {@code stale-while-revalidate} window (from the header, or
+ * {@code responsecache.stale-while-revalidate.seconds}) a stale entry can still be served while it
+ * is refreshed in the background, so the caller does not wait on the upstream.
+ *
+ * Entries hold the parsed response, weighted by the size of the body it was parsed from.
+ * Memory is bounded by the total weight ({@code responsecache.max-bytes}), evicting the
+ * least recently used entries first.
+ *
+ * When a {@link SnapshotStore} is set, a key missing in memory is looked up in it and promoted.
+ */
+public class ResponseCache {
+
+    public record Entry(Object value, long weight, String etag, String lastModified, long storedAt, long expiresAt,
+            long staleUntil) {
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+        /**
+         * @return true if the entry is stale but may still be served while it is revalidated
+         */
+        public boolean isStaleWhileRevalidate() {
+            long now = System.currentTimeMillis();
+            return now >= expiresAt && now < staleUntil;
+        }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    private final long maxBytes;
+    private final long staleWhileRevalidateMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // The same entries, to look them up without changing the access order
+    private final Map<String, Entry> unordered = new HashMap<>();
+    private long totalBytes;
+    private volatile SnapshotStore snapshot;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    public ResponseCache() {
+        this(Config.getLong("responsecache.max-bytes", 64L * 1024 * 1024),
+                Config.getLong("responsecache.stale-while-revalidate.seconds", 60) * 1000);
+    }
+
+
+    public ResponseCache(long maxBytes) {
+        this(maxBytes, 0);
+    }
+
+
+    /**
+     * @param staleWhileRevalidateMillis how long stale entries may be served while revalidating,
+     *                                   when the response does not say
+     */
+    public ResponseCache(long maxBytes, long staleWhileRevalidateMillis) {
+        this.maxBytes = maxBytes;
+        this.staleWhileRevalidateMillis = staleWhileRevalidateMillis;
+    }
+
+
+    /**
+     * Look up the keys missing in memory in a snapshot.
+     */
+    public void setSnapshot(SnapshotStore snapshot) {
+        this.snapshot = snapshot;
+    }
+
+
+    /**
+     * Look up an entry, fresh or stale. Callers serve fresh entries directly and use
+     * the validators of stale ones to revalidate.
+     */
+    public Entry get(String key) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null || snapshot == null) {
+                return usable(key, entry);
+            }
+        }
+
+        // Deserialized without holding the lock, which every lookup takes
+        Entry loaded = snapshot.response(key);
+        if (loaded == null || !isUsable(loaded)) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                return usable(key, entry);
+            }
+            store(key, loaded);
+            return loaded;
+        }
+    }
+
+
+    /**
+     * Look up an entry held in memory, fresh or stale, without making it the most recently used nor
+     * looking it up in the snapshot: for background work that must not look like traffic.
+     */
+    public synchronized Entry peek(String key) {
+        Entry entry = unordered.get(key);
+        return entry != null && isUsable(entry) ? entry : null;
+    }
+
+
+    private Entry usable(String key, Entry entry) {
+        if (entry != null && !isUsable(entry)) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+
+    /**
+     * @return a copy of the entries, least recently used first
+     */
+    public synchronized Map<String, Entry> entries() {
+        return new LinkedHashMap<>(entries);
+    }
+
+
+    /**
+     * Store a parsed 200 response if its headers allow it.
+     *
+     * @param weight size in bytes of the response body
+     */
+    public void put(String key, Object value, long weight, HttpHeaders headers) {
+        if (isNoStore(headers)) {
+            return;
+        }
+        Entry entry = newEntry(value, weight,
+                headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null),
+                headers);
+        if (!isUsable(entry)) {
+            return;
+        }
+        store(key, entry);
+    }
+
+
+    /**
+     * Refresh a stale entry after the upstream answered {@code 304 Not Modified}.
+     *
+     * @return the revalidated entry
+     */
+    public Entry revalidated(String key, Entry stale, HttpHeaders headers) {
+        revalidations.incrementAndGet();
+        Entry entry = newEntry(stale.value(), stale.weight(),
+                headers.firstValue("ETag").orElse(stale.etag()),
+                headers.firstValue("Last-Modified").orElse(stale.lastModified()),
+                headers);
+        store(key, entry);
+        return entry;
+    }
+
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+
+    /**
+     * A stale entry was served while it is being revalidated.
+     */
+    public void recordStaleHit() {
+        staleHits.incrementAndGet();
+    }
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "ResponseCache[entries=%d, bytes=%d, hits=%d, misses=%d, staleHits=%d, revalidations=%d, evictions=%d]",
+                size(), getTotalBytes(), getHits(), getMisses(), getStaleHits(), getRevalidations(), getEvictions());
+    }
+
+
+    private Entry newEntry(Object value, long weight, String etag, String lastModified, HttpHeaders headers) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + freshnessMillis(headers);
+        return new Entry(value, weight, etag, lastModified, now, expiresAt, expiresAt + staleWhileRevalidateMillis(headers));
+    }
+
+
+    /**
+     * Fresh entries, stale ones within their stale-while-revalidate window, and stale ones with
+     * validators are worth keeping; anything else would only cost a full request anyway.
+     */
+    private static boolean isUsable(Entry entry) {
+        return entry.isFresh() || entry.isStaleWhileRevalidate() || entry.hasValidators();
+    }
+
+
+    private long staleWhileRevalidateMillis(HttpHeaders headers) {
+        Map<String, String> cacheControl = cacheControl(headers);
+        if (cacheControl.containsKey("no-cache") || cacheControl.containsKey("must-revalidate")
+                || cacheControl.containsKey("proxy-revalidate")) {
+            return 0;
+        }
+        String value = cacheControl.get("stale-while-revalidate");
+        if (value != null) {
+            try {
+                return Long.parseLong(value) * 1000;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return staleWhileRevalidateMillis;
+    }
+
+
+    private synchronized void store(String key, Entry entry) {
+        if (entry.weight() > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, entry);
+        unordered.put(key, entry);
+        totalBytes += entry.weight();
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            totalBytes -= evicted.getValue().weight();
+            unordered.remove(evicted.getKey());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+
+    private void remove(String key) {
+        Entry previous = entries.remove(key);
+        unordered.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.weight();
+        }
+    }
+
+
+    private static boolean isNoStore(HttpHeaders headers) {
+        return cacheControl(headers).containsKey("no-store");
+    }
+
+
+    /**
+     * How long a response stays fresh, as a shared cache would compute it.
+     */
+    static long freshnessMillis(HttpHeaders headers) {
+        Map<String, String> cacheControl = cacheControl(headers);
+        if (cacheControl.containsKey("no-cache")) {
+            return 0;
+        }
+
+        long age = age(headers);
+        String maxAge = Optional.ofNullable(cacheControl.get("s-maxage")).orElse(cacheControl.get("max-age"));
+        if (maxAge != null) {
+            try {
+                return Math.max(0, Long.parseLong(maxAge) - age) * 1000;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        Optional<String> expires = headers.firstValue("Expires");
+        if (expires.isPresent()) {
+            try {
+                long expiresAt = parseDate(expires.get());
+                long date = headers.firstValue("Date").map(ResponseCache::parseDate).orElse(System.currentTimeMillis());
+                return Math.max(0, expiresAt - date);
+            } catch (DateTimeParseException e) {
+                // An invalid Expires header means already expired
+                return 0;
+            }
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * @return the Age header in seconds, 0 if missing or invalid
+     */
+    private static long age(HttpHeaders headers) {
+        try {
+            return Math.max(0, headers.firstValueAsLong("Age").orElse(0));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+
+    private static Map<String, String> cacheControl(HttpHeaders headers) {
+        Map<String, String> directives = new LinkedHashMap<>();
+        for (String value : headers.allValues("Cache-Control")) {
+            for (String directive : value.split(",")) {
+                String[] parts = directive.trim().split("=", 2);
+                if (!parts[0].isEmpty()) {
+                    directives.put(parts[0].toLowerCase(Locale.ENGLISH),
+                            parts.length > 1 ? parts[1].replace("\"", "").trim() : "");
+                }
+            }
+        }
+        return directives;
+    }
+
+
+    private static long parseDate(String value) {
+        return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+    }
+
+}
@@ -0,0 +1,595 @@
+package com.metricool.mcp.weather.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Gauge;
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.Json;
+
+
+/**
+ * Memory-mapped snapshot of the resolved grid points and the cached upstream responses, so that a
+ * restarted server, or a new STDIO process, starts warm instead of sending every request upstream.
+ *
+ * The snapshot is written every {@code snapshot.interval.seconds} and when the service stops. It
+ * is written to a temporary file moved into place, merged with the entries of the latest snapshot
+ * on disk that are still usable, so several processes can share one file. With
+ * {@code snapshot.read-only} a process only maps the snapshot, and maps it again when it changes.
+ *
+ * The file is bounded like the {@link ResponseCache}: responses expired for more than
+ * {@code snapshot.max-stale.seconds} are dropped even if they have validators, and responses stop
+ * being written, most recently used first, past {@code snapshot.max-bytes}.
+ *
+ * Nothing is read at startup but the header: a lookup binary searches the sorted hash index of the
+ * mapped file and deserializes that one entry, which the caller then promotes to its in-memory
+ * cache. Expiration times are kept, so stale responses are only used to revalidate, as in the
+ * {@link ResponseCache}.
+ *
+ * Layout, big-endian: a header (magic, version, write time, entry count), the index of
+ * {@code (hash, offset)} pairs sorted by hash, then the entries: kind, key, stored, expires and
+ * stale-until times, ETag, Last-Modified, value type and value. Grid point values are the forecast
+ * URL; response values are the parsed response as JSON.
+ */
+public class SnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final Counter LOOKUPS = Metrics.REGISTRY.counter("snapshot_lookups_total",
+            "Lookups in the cache snapshot after an in-memory miss, by kind and result.", "kind", "result");
+    private static final Counter WRITES = Metrics.REGISTRY.counter("snapshot_writes_total",
+            "Cache snapshots written, by result.", "result");
+    private static final Gauge ENTRIES = Metrics.REGISTRY.gauge("snapshot_entries",
+            "Entries of the mapped cache snapshot.");
+    private static final Gauge BYTES = Metrics.REGISTRY.gauge("snapshot_bytes",
+            "Size of the mapped cache snapshot.");
+
+    static final byte GRID_POINT = 1;
+    static final byte RESPONSE = 2;
+
+    private static final int MAGIC = 0x4D435753;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final byte NO_TYPE = -1;
+
+    /**
+     * A grid point found in the snapshot.
+     */
+    public record GridPoint(String forecastUrl, long expiresAt) {
+    }
+
+    private final Path file;
+    private final long intervalMillis;
+    private final boolean readOnly;
+    private final List<Class<?>> valueTypes;
+    private final long maxStaleMillis;
+    private final long maxBytes;
+    private volatile Mapping mapping = Mapping.EMPTY;
+    private ScheduledExecutorService scheduler;
+    private GridPointCache gridPoints;
+    private ResponseCache responses;
+
+
+    /**
+     * @return the snapshot store of {@code snapshot.file}, or null if it is not set
+     */
+    public static SnapshotStore fromConfig(List<Class<?>> valueTypes) {
+        String file = Config.get("snapshot.file", null);
+        if (file == null) {
+            return null;
+        }
+        return new SnapshotStore(Path.of(file), Config.getLong("snapshot.interval.seconds", 60) * 1000,
+                Config.getBoolean("snapshot.read-only", false), valueTypes,
+                Config.getLong("snapshot.max-stale.seconds", 86400) * 1000,
+                Config.getLong("snapshot.max-bytes", Config.getLong("responsecache.max-bytes", 64L * 1024 * 1024)));
+    }
+
+
+    /**
+     * @param valueTypes the classes of the response values that are snapshotted; other responses are left out
+     */
+    public SnapshotStore(Path file, long intervalMillis, boolean readOnly, List<Class<?>> valueTypes) {
+        this(file, intervalMillis, readOnly, valueTypes, TimeUnit.DAYS.toMillis(1), 64L * 1024 * 1024);
+    }
+
+
+    /**
+     * @param maxStaleMillis how long after expiring a response with validators is kept
+     * @param maxBytes       the size of the responses written, at most
+     */
+    public SnapshotStore(Path file, long intervalMillis, boolean readOnly, List<Class<?>> valueTypes, long maxStaleMillis,
+            long maxBytes) {
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+        this.readOnly = readOnly;
+        this.valueTypes = List.copyOf(valueTypes);
+        this.maxStaleMillis = maxStaleMillis;
+        this.maxBytes = maxBytes;
+        remap();
+    }
+
+
+    /**
+     * Write the snapshot of the caches every interval, or map it again when it changed if it is read-only.
+     */
+    public synchronized void start(GridPointCache gridPoints, ResponseCache responses) {
+        this.gridPoints = gridPoints;
+        this.responses = responses;
+        if (scheduler == null && intervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> {
+                if (readOnly) {
+                    remap();
+                } else {
+                    write();
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    /**
+     * Stop the schedule, and write a last snapshot unless it is read-only.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (!readOnly && gridPoints != null) {
+            write();
+        }
+    }
+
+
+    /**
+     * @param key the grid point cache key
+     * @return the grid point, or null if it is not in the snapshot or has expired
+     */
+    public GridPoint gridPoint(String key) {
+        Mapping current = mapping;
+        try {
+            int entry = current.find(GRID_POINT, key);
+            if (entry < 0 || current.staleUntil(entry) <= System.currentTimeMillis()) {
+                LOOKUPS.inc("grid-point", "miss");
+                return null;
+            }
+            LOOKUPS.inc("grid-point", "hit");
+            return new GridPoint(current.valueString(entry), current.expiresAt(entry));
+        } catch (RuntimeException e) {
+            LOOKUPS.inc("grid-point", "error");
+            logger.warn("Unreadable snapshot entry '{}': {}", key, e.toString());
+            return null;
+        }
+    }
+
+
+    /**
+     * @param key the response cache key
+     * @return the response, or null if it is not in the snapshot or no longer usable
+     */
+    public ResponseCache.Entry response(String key) {
+        Mapping current = mapping;
+        int entry = current.find(RESPONSE, key);
+        if (entry < 0 || !current.isUsable(entry, System.currentTimeMillis(), maxStaleMillis)) {
+            LOOKUPS.inc("response", "miss");
+            return null;
+        }
+        byte type = current.type(entry);
+        if (type < 0 || type >= valueTypes.size()) {
+            LOOKUPS.inc("response", "miss");
+            return null;
+        }
+        try {
+            ByteBuffer value = current.value(entry);
+            int weight = value.remaining();
+            Object parsed = Json.MAPPER.readValue(new ByteBufferBackedInputStream(value), valueTypes.get(type));
+            LOOKUPS.inc("response", "hit");
+            return new ResponseCache.Entry(parsed, weight, current.string(entry, 1), current.string(entry, 2),
+                    current.storedAt(entry), current.expiresAt(entry), current.staleUntil(entry));
+        } catch (IOException | RuntimeException e) {
+            LOOKUPS.inc("response", "error");
+            logger.warn("Unreadable snapshot entry '{}': {}", key, e.toString());
+            return null;
+        }
+    }
+
+
+    /**
+     * @return the entries of the mapped snapshot
+     */
+    public int size() {
+        return mapping.count;
+    }
+
+
+    /**
+     * Write the caches to a new snapshot, with the usable entries of the latest one on disk that
+     * are no longer in memory, up to {@code snapshot.max-bytes} of responses, and map it.
+     */
+    synchronized void write() {
+        long start = System.nanoTime();
+        remap();
+        Mapping previous = mapping;
+        Path tmp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            int count = writeTo(tmp, previous);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            remap();
+            WRITES.inc("success");
+            logger.debug("Wrote {} entries to cache snapshot '{}' in {} ms", count, file,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            WRITES.inc("error");
+            logger.warn("Could not write cache snapshot '{}'", file, e);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // Overwritten by the next write
+            }
+        }
+    }
+
+
+    private int writeTo(Path tmp, Mapping previous) throws IOException {
+        long now = System.currentTimeMillis();
+        List<Object[]> gridPointEntries = new ArrayList<>();
+        gridPoints.forEach((key, forecastUrl, expiresAt) -> gridPointEntries.add(new Object[] {key, forecastUrl, expiresAt}));
+        List<Map.Entry<String, ResponseCache.Entry>> responseEntries = new ArrayList<>(responses.entries().entrySet());
+        // Most recently used first, so the cap drops the least used
+        Collections.reverse(responseEntries);
+
+        int capacity = gridPointEntries.size() + responseEntries.size() + previous.count;
+        long[] hashes = new long[capacity];
+        int[] offsets = new int[capacity];
+        Set<String> written = new HashSet<>();
+        int count = 0;
+        long responseBytes = 0;
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            long indexEnd = HEADER_SIZE + (long) capacity * INDEX_ENTRY_SIZE;
+            channel.position(indexEnd);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 65536));
+
+            for (Object[] gridPoint : gridPointEntries) {
+                String key = (String) gridPoint[0];
+                long expiresAt = (Long) gridPoint[2];
+                if (expiresAt > now && written.add(GRID_POINT + key)) {
+                    hashes[count] = hash(GRID_POINT, key);
+                    offsets[count++] = offset(indexEnd, out);
+                    writeEntry(out, GRID_POINT, key, 0, expiresAt, expiresAt, null, null, NO_TYPE,
+                            ((String) gridPoint[1]).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            for (Map.Entry<String, ResponseCache.Entry> response : responseEntries) {
+                if (responseBytes >= maxBytes) {
+                    break;
+                }
+                ResponseCache.Entry entry = response.getValue();
+                int type = valueTypes.indexOf(entry.value().getClass());
+                if (type >= 0 && isUsable(entry.expiresAt(), entry.staleUntil(), entry.hasValidators(), now, maxStaleMillis)
+                        && written.add(RESPONSE + response.getKey())) {
+                    hashes[count] = hash(RESPONSE, response.getKey());
+                    offsets[count++] = offset(indexEnd, out);
+                    int start = out.size();
+                    writeEntry(out, RESPONSE, response.getKey(), entry.storedAt(), entry.expiresAt(), entry.staleUntil(),
+                            entry.etag(), entry.lastModified(), (byte) type, Json.MAPPER.writeValueAsBytes(entry.value()));
+                    responseBytes += out.size() - start;
+                }
+            }
+            for (int entry = 0; entry < previous.count; entry++) {
+                int position = previous.offset(entry);
+                boolean response = previous.kind(position) == RESPONSE;
+                if ((!response || responseBytes < maxBytes) && previous.isUsable(position, now, maxStaleMillis)
+                        && written.add(previous.kind(position) + previous.key(position))) {
+                    byte[] bytes = previous.bytes(position);
+                    hashes[count] = previous.hash(entry);
+                    offsets[count++] = offset(indexEnd, out);
+                    out.write(bytes);
+                    if (response) {
+                        responseBytes += bytes.length;
+                    }
+                }
+            }
+            out.flush();
+
+            // Sort the index by hash, then write it and the header before the entries
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+            ByteBuffer head = ByteBuffer.allocate((int) indexEnd);
+            head.putInt(MAGIC).putInt(VERSION).putLong(now).putInt(count);
+            for (int i : order) {
+                head.putLong(hashes[i]).putInt(offsets[i]);
+            }
+            head.position(0).limit(HEADER_SIZE + count * INDEX_ENTRY_SIZE);
+            while (head.hasRemaining()) {
+                channel.write(head, head.position());
+            }
+            channel.force(false);
+        }
+        return count;
+    }
+
+
+    /**
+     * Usable as the {@link ResponseCache} keeps entries: fresh, within stale-while-revalidate, or with
+     * validators if it has not been expired for more than the max stale time.
+     */
+    private static boolean isUsable(long expiresAt, long staleUntil, boolean hasValidators, long now, long maxStaleMillis) {
+        return staleUntil > now || hasValidators && now - expiresAt < maxStaleMillis;
+    }
+
+
+    private static int offset(long indexEnd, DataOutputStream out) throws IOException {
+        long offset = indexEnd + out.size();
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot larger than 2 GB");
+        }
+        return (int) offset;
+    }
+
+
+    private static void writeEntry(DataOutputStream out, byte kind, String key, long storedAt, long expiresAt,
+            long staleUntil, String etag, String lastModified, byte type, byte[] value) throws IOException {
+        out.writeByte(kind);
+        writeString(out, key);
+        out.writeLong(storedAt);
+        out.writeLong(expiresAt);
+        out.writeLong(staleUntil);
+        writeString(out, etag);
+        writeString(out, lastModified);
+        out.writeByte(type);
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    /**
+     * 64-bit FNV-1a of the kind and the UTF-8 key.
+     */
+    static long hash(byte kind, String key) {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ kind) * 0x100000001b3L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+
+    /**
+     * Map the snapshot file again if it was replaced since it was last mapped.
+     */
+    private synchronized void remap() {
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(file);
+            long size = Files.size(file);
+            if (modified.equals(mapping.modified) && size == mapping.size) {
+                return;
+            }
+            mapping = Mapping.map(file, modified, size);
+            ENTRIES.value().set(mapping.count);
+            BYTES.value().set(size);
+            logger.info("Mapped {} cache snapshot entries from '{}'", mapping.count, file);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable cache snapshot '{}': {}", file, e.toString());
+        }
+    }
+
+
+    /**
+     * A mapped snapshot file. Entry positions are absolute offsets in the file.
+     */
+    private static final class Mapping {
+
+        static final Mapping EMPTY = new Mapping(ByteBuffer.allocate(0), null, 0, 0);
+
+        private final ByteBuffer buffer;
+        private final FileTime modified;
+        private final long size;
+        private final int count;
+
+        private Mapping(ByteBuffer buffer, FileTime modified, long size, int count) {
+            this.buffer = buffer;
+            this.modified = modified;
+            this.size = size;
+            this.count = count;
+        }
+
+        static Mapping map(Path file, FileTime modified, long size) throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB");
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("Not a version " + VERSION + " cache snapshot");
+                }
+                int count = buffer.getInt(16);
+                if (count < 0 || HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE > size) {
+                    throw new IOException("Truncated cache snapshot");
+                }
+                return new Mapping(buffer, modified, size, count);
+            }
+        }
+
+        long hash(int entry) {
+            return buffer.getLong(HEADER_SIZE + entry * INDEX_ENTRY_SIZE);
+        }
+
+        int offset(int entry) {
+            return buffer.getInt(HEADER_SIZE + entry * INDEX_ENTRY_SIZE + 8);
+        }
+
+        /**
+         * @return the position of the entry, or -1
+         */
+        int find(byte kind, String key) {
+            long hash = SnapshotStore.hash(kind, key);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long found = hash(middle);
+                if (found < hash) {
+                    low = middle + 1;
+                } else if (found > hash) {
+                    high = middle - 1;
+                } else {
+                    // Collisions are next to each other
+                    while (middle > 0 && hash(middle - 1) == hash) {
+                        middle--;
+                    }
+                    for (; middle < count && hash(middle) == hash; middle++) {
+                        int position = offset(middle);
+                        if (kind(position) == kind && key.equals(key(position))) {
+                            return position;
+                        }
+                    }
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        byte kind(int position) {
+            return buffer.get(position);
+        }
+
+        String key(int position) {
+            return string(position, 0);
+        }
+
+        private int times(int position) {
+            return position + 1 + 4 + buffer.getInt(position + 1);
+        }
+
+        long storedAt(int position) {
+            return buffer.getLong(times(position));
+        }
+
+        long expiresAt(int position) {
+            return buffer.getLong(times(position) + 8);
+        }
+
+        long staleUntil(int position) {
+            return buffer.getLong(times(position) + 16);
+        }
+
+        /**
+         * @see SnapshotStore#isUsable(long, long, boolean, long, long)
+         */
+        boolean isUsable(int position, long now, long maxStaleMillis) {
+            if (staleUntil(position) > now) {
+                return true;
+            }
+            return kind(position) == RESPONSE && SnapshotStore.isUsable(expiresAt(position), staleUntil(position),
+                    string(position, 1) != null || string(position, 2) != null, now, maxStaleMillis);
+        }
+
+        /**
+         * @param field 0 for the key, 1 for the ETag, 2 for Last-Modified
+         */
+        String string(int position, int field) {
+            int at = position + 1;
+            if (field > 0) {
+                at = times(position) + 24;
+                for (int i = 1; i < field; i++) {
+                    at += 4 + Math.max(0, buffer.getInt(at));
+                }
+            }
+            int length = buffer.getInt(at);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(at + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int typeAt(int position) {
+            int at = times(position) + 24;
+            at += 4 + Math.max(0, buffer.getInt(at));
+            at += 4 + Math.max(0, buffer.getInt(at));
+            return at;
+        }
+
+        byte type(int position) {
+            return buffer.get(typeAt(position));
+        }
+
+        ByteBuffer value(int position) {
+            int at = typeAt(position) + 1;
+            return buffer.slice(at + 4, buffer.getInt(at));
+        }
+
+        String valueString(int position) {
+            return StandardCharsets.UTF_8.decode(value(position)).toString();
+        }
+
+        /**
+         * @return the whole entry, to copy it as is
+         */
+        byte[] bytes(int position) {
+            int at = typeAt(position) + 1;
+            int end = at + 4 + buffer.getInt(at);
+            byte[] bytes = new byte[end - position];
+            buffer.get(position, bytes);
+            return bytes;
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.metricool.mcp.weather.cluster;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Gauge;
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * Cluster mode: replicas listed in {@code cluster.peers} share their upstream responses instead
+ * of each fetching and caching the same ones.
+ *
+ * Every upstream URI, that is every grid point, forecast and state, is owned by one replica,
+ * picked by a {@link HashRing} of the peers. On a cache miss a replica asks the owner through its
+ * {@link PeerServlet} before going upstream, so a response is fetched once for the whole cluster.
+ *
+ * A peer that cannot be reached is considered down for {@code cluster.retry.seconds}: its keys
+ * are then fetched locally, as without cluster mode. A peer answers after its own upstream
+ * request, so {@code cluster.timeout.ms} defaults to more than {@code http.timeout.ms}, and a
+ * request that times out is only fetched locally, without marking the peer down.
+ *
+ * Peers authenticate with the shared {@code cluster.secret}, sent in the
+ * {@value #SECRET_HEADER} header; cluster mode is off without it.
+ */
+public class Cluster {
+
+    private static final Logger logger = LoggerFactory.getLogger(Cluster.class);
+
+    public static final String FETCH_PATH = "/cluster/fetch";
+
+    /**
+     * Response header of the {@link PeerServlet} when the status is the upstream's, not the peer's.
+     */
+    public static final String UPSTREAM_STATUS_HEADER = "X-Upstream-Status";
+
+    /**
+     * Request header with the {@code cluster.secret} shared by the peers.
+     */
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private static final Counter ROUTES = Metrics.REGISTRY.counter("cluster_routes_total",
+            "Upstream cache misses by where they were sent: owned (upstream by this replica), peer, or peer-down (upstream by this replica).",
+            "route");
+    private static final Counter PEER_REQUESTS = Metrics.REGISTRY.counter("cluster_peer_requests_total",
+            "Requests to peers, by peer and result.", "peer", "result");
+    private static final Gauge PEER_UP = Metrics.REGISTRY.gauge("cluster_peer_up",
+            "Whether a peer answered its last request.", "peer");
+
+    private final String self;
+    private final String secret;
+    private final String upstreamBaseUrl;
+    private final HashRing ring;
+    private final Duration timeout;
+    private final long retryMillis;
+    private final Map<String, Long> downUntil = new ConcurrentHashMap<>();
+
+
+    /**
+     * @return whether {@code cluster.peers} and {@code cluster.secret} are set
+     */
+    public static boolean isEnabled() {
+        return !Config.get("cluster.peers", "").isBlank() && !getConfiguredSecret().isEmpty();
+    }
+
+
+    /**
+     * @return {@code cluster.secret}, or an empty string
+     */
+    public static String getConfiguredSecret() {
+        return Config.get("cluster.secret", "").trim();
+    }
+
+
+    /**
+     * @return the cluster of {@code cluster.peers}, or null if it is not set
+     */
+    public static Cluster fromConfig() {
+        String peers = Config.get("cluster.peers", "");
+        if (peers.isBlank()) {
+            return null;
+        }
+        if (!isEnabled()) {
+            logger.error("Cluster mode is off: cluster.secret is not set");
+            return null;
+        }
+        return new Cluster(Config.get("cluster.self", "http://localhost:" + Config.getInt("server.port", 8080)),
+                Arrays.stream(peers.split(",")).map(String::trim).filter(peer -> !peer.isEmpty()).toList(),
+                Config.get("upstream.url", "https://api.weather.gov"),
+                getConfiguredSecret(),
+                Config.getInt("cluster.virtual-nodes", 128),
+                Duration.ofMillis(Config.getLong("cluster.timeout.ms", Config.getLong("http.timeout.ms", 10000) + 2000)),
+                Config.getLong("cluster.retry.seconds", 10) * 1000);
+    }
+
+
+    /**
+     * @param self  the base URL of this replica, as its peers reach it
+     * @param peers the base URLs of all replicas; this one is added if it is not listed
+     */
+    public Cluster(String self, List<String> peers, String upstreamBaseUrl, String secret, int virtualNodes, Duration timeout,
+            long retryMillis) {
+        this.self = trimSlash(self);
+        this.secret = secret;
+        this.upstreamBaseUrl = trimSlash(upstreamBaseUrl);
+        List<String> nodes = new ArrayList<>(peers.stream().map(Cluster::trimSlash).distinct().toList());
+        if (!nodes.contains(this.self)) {
+            nodes.add(this.self);
+        }
+        this.ring = new HashRing(nodes, virtualNodes);
+        this.timeout = timeout;
+        this.retryMillis = retryMillis;
+        for (String node : nodes) {
+            if (!node.equals(this.self)) {
+                PEER_UP.value(node).set(1);
+            }
+        }
+        logger.info("Cluster mode: {} of {}", this.self, nodes);
+    }
+
+
+    /**
+     * Pick where a cache miss is fetched.
+     *
+     * @return the peer to ask, or null to go upstream from this replica: it owns the key, the
+     *         owner is down, or the URI is not one of the upstream
+     */
+    public String route(String key, URI uri) {
+        if (!uri.toString().startsWith(upstreamBaseUrl + "/")) {
+            return null;
+        }
+        String owner = ring.owner(key);
+        if (owner.equals(self)) {
+            ROUTES.inc("owned");
+            return null;
+        }
+        Long until = downUntil.get(owner);
+        if (until != null && until > System.currentTimeMillis()) {
+            ROUTES.inc("peer-down");
+            return null;
+        }
+        ROUTES.inc("peer");
+        return owner;
+    }
+
+
+    /**
+     * @return the URI asking a peer for an upstream URI, read through its cache
+     */
+    public URI fetchUri(String peer, String endpoint, URI uri) {
+        String path = uri.toString().substring(upstreamBaseUrl.length());
+        return URI.create(peer + FETCH_PATH + "?endpoint=" + URLEncoder.encode(endpoint, StandardCharsets.UTF_8)
+                + "&path=" + URLEncoder.encode(path, StandardCharsets.UTF_8));
+    }
+
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+
+    public String getSecret() {
+        return secret;
+    }
+
+
+    /**
+     * Record an answer of a peer, which is up.
+     *
+     * @param result e.g. hit, not-modified or upstream-error
+     */
+    public void onAnswer(String peer, String result) {
+        PEER_REQUESTS.inc(peer, result);
+        if (downUntil.remove(peer) != null) {
+            PEER_UP.value(peer).set(1);
+            logger.info("Peer {} is back", peer);
+        }
+    }
+
+
+    /**
+     * Record a peer that did not answer: its keys are fetched locally until the retry delay is over,
+     * unless it was reached but is only slow, like the upstream it is waiting for.
+     */
+    public void onFailure(String peer, Throwable error) {
+        if (error instanceof HttpTimeoutException && !(error instanceof HttpConnectTimeoutException)) {
+            PEER_REQUESTS.inc(peer, "timeout");
+            return;
+        }
+        PEER_REQUESTS.inc(peer, "error");
+        if (downUntil.put(peer, System.currentTimeMillis() + retryMillis) == null) {
+            PEER_UP.value(peer).set(0);
+            logger.warn("Peer {} is unreachable, fetching its keys locally for {} s: {}", peer, retryMillis / 1000, error.toString());
+        }
+    }
+
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+}
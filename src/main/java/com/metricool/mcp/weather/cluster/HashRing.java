@@ -0,0 +1,70 @@
+package com.metricool.mcp.weather.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Consistent hash ring: every key is owned by the first node found clockwise from its hash.
+ *
+ * Each node is placed at {@code virtualNodes} points of the ring, so keys spread evenly and, when
+ * a node is added or removed, only the keys it owns move. The ring only depends on the node list,
+ * so replicas configured with the same peers agree on every owner without talking to each other.
+ */
+public class HashRing {
+
+    private final long[] points;
+    private final String[] owners;
+
+
+    public HashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        long[][] placed = new long[nodes.size() * virtualNodes][];
+        int i = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                placed[i++] = new long[] {hash(nodes.get(node) + "#" + replica), node};
+            }
+        }
+        Arrays.sort(placed, (a, b) -> Long.compare(a[0], b[0]));
+        points = new long[placed.length];
+        owners = new String[placed.length];
+        for (i = 0; i < placed.length; i++) {
+            points[i] = placed[i][0];
+            owners[i] = nodes.get((int) placed[i][1]);
+        }
+    }
+
+
+    /**
+     * @return the node owning the key
+     */
+    public String owner(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+
+    /**
+     * 64-bit FNV-1a, finished with the MurmurHash3 mix so that similar keys land far apart.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.metricool.mcp.weather.cluster;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metricool.mcp.weather.cache.ResponseCache;
+import com.metricool.mcp.weather.service.WeatherService;
+import com.metricool.mcp.weather.utils.UpstreamException;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+
+/**
+ * Answers the peers of a {@link Cluster} asking for the upstream URIs this replica owns, at
+ * {@value Cluster#FETCH_PATH}{@code ?endpoint=...&path=...}, from its cache or fetching them.
+ *
+ * The body is the parsed response as JSON, plus the grid cell of a forecast, with the freshness and
+ * validators of the cache entry, so the peer caches it as if it came from the upstream, and can
+ * revalidate it with {@code If-None-Match}. An error of the upstream is passed on with its status and the
+ * {@value Cluster#UPSTREAM_STATUS_HEADER} header; any other failure is a 502 or 503, on which the
+ * peer fetches the URI itself.
+ *
+ * Requests without the shared secret in the {@value Cluster#SECRET_HEADER} header are refused, so
+ * only peers can have this replica send upstream requests.
+ */
+public class PeerServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerServlet.class);
+
+    private final transient WeatherService weatherService;
+    private final byte[] secret;
+
+
+    /**
+     * @param secret the {@code cluster.secret} shared by the peers
+     */
+    public PeerServlet(WeatherService weatherService, String secret) {
+        if (secret.isEmpty()) {
+            throw new IllegalArgumentException("A cluster secret is required");
+        }
+        this.weatherService = weatherService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!isPeer(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        String endpoint = request.getParameter("endpoint");
+        String path = request.getParameter("path");
+        if (endpoint == null || path == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "endpoint and path are required");
+            return;
+        }
+
+        ResponseCache.Entry entry;
+        try {
+            entry = weatherService.fetchForPeer(endpoint, path);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (UpstreamException e) {
+            response.setHeader(Cluster.UPSTREAM_STATUS_HEADER, String.valueOf(e.getStatusCode()));
+            response.sendError(e.getStatusCode());
+            return;
+        } catch (IOException e) {
+            logger.debug("Cannot fetch {} for a peer: {}", path, e.toString());
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (entry.expiresAt() <= now && !entry.hasValidators()) {
+            response.setHeader("Cache-Control", "no-store");
+        } else {
+            response.setHeader("Cache-Control", "max-age=" + Math.max(0, (entry.expiresAt() - now) / 1000)
+                    + ", stale-while-revalidate=" + Math.max(0, (entry.staleUntil() - Math.max(now, entry.expiresAt())) / 1000));
+        }
+        if (entry.etag() != null) {
+            response.setHeader("ETag", entry.etag());
+            if (entry.etag().equals(request.getHeader("If-None-Match"))) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        if (entry.lastModified() != null) {
+            response.setHeader("Last-Modified", entry.lastModified());
+        }
+
+        byte[] body = weatherService.toPeerBody(endpoint, path, entry.value());
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+
+    /**
+     * @return whether the request has the shared secret, compared in constant time
+     */
+    boolean isPeer(HttpServletRequest request) {
+        String header = request.getHeader(Cluster.SECRET_HEADER);
+        return header != null && MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
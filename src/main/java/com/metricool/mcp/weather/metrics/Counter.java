@@ -0,0 +1,37 @@
+package com.metricool.mcp.weather.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Monotonically increasing count.
+ */
+public class Counter extends Metric<LongAdder> {
+
+    Counter(String name, String help, String... labelNames) {
+        super(name, help, "counter", labelNames);
+    }
+
+
+    public void inc(String... labelValues) {
+        labels(labelValues).increment();
+    }
+
+
+    public void add(long amount, String... labelValues) {
+        labels(labelValues).add(amount);
+    }
+
+
+    @Override
+    protected LongAdder newChild() {
+        return new LongAdder();
+    }
+
+
+    @Override
+    protected void writeChild(StringBuilder out, String labels, LongAdder child) {
+        writeSample(out, "", labels, child.sum());
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.metricool.mcp.weather.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Value that goes up and down. Children are either set directly or read from a supplier at scrape time.
+ */
+public class Gauge extends Metric<LongSupplier> {
+
+    Gauge(String name, String help, String type, String... labelNames) {
+        super(name, help, type, labelNames);
+    }
+
+
+    /**
+     * @return a settable value for these labels
+     */
+    public AtomicLong value(String... labelValues) {
+        LongSupplier child = labels(labelValues);
+        if (child instanceof Value value) {
+            return value;
+        }
+        throw new IllegalStateException(getName() + " is read from a supplier");
+    }
+
+
+    /**
+     * Read the value of these labels from a supplier.
+     */
+    public Gauge bind(LongSupplier supplier, String... labelValues) {
+        putChild(supplier, labelValues);
+        return this;
+    }
+
+
+    @Override
+    protected LongSupplier newChild() {
+        return new Value();
+    }
+
+
+    @Override
+    protected void writeChild(StringBuilder out, String labels, LongSupplier child) {
+        writeSample(out, "", labels, child.getAsLong());
+    }
+
+
+    private static class Value extends AtomicLong implements LongSupplier {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public long getAsLong() {
+            return get();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.metricool.mcp.weather.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Distribution of durations in seconds over fixed buckets.
+ */
+public class Histogram extends Metric<Histogram.Child> {
+
+    static final double[] DEFAULT_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30 };
+
+    private final double[] buckets;
+
+
+    Histogram(String name, String help, String... labelNames) {
+        super(name, help, "histogram", labelNames);
+        this.buckets = DEFAULT_BUCKETS;
+    }
+
+
+    /**
+     * Record the time elapsed since {@code startNanos}, as returned by {@link System#nanoTime()}.
+     */
+    public void observeSince(long startNanos, String... labelValues) {
+        observe((System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1), labelValues);
+    }
+
+
+    public void observe(double seconds, String... labelValues) {
+        labels(labelValues).observe(seconds);
+    }
+
+
+    @Override
+    protected Child newChild() {
+        return new Child(buckets);
+    }
+
+
+    @Override
+    protected void writeChild(StringBuilder out, String labels, Child child) {
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += child.counts[i].sum();
+            writeSample(out, "_bucket", labels + separator + "le=\"" + buckets[i] + "\"", cumulative);
+        }
+        writeSample(out, "_bucket", labels + separator + "le=\"+Inf\"", child.count.sum());
+        writeSample(out, "_sum", labels, child.sum.sum());
+        writeSample(out, "_count", labels, child.count.sum());
+    }
+
+
+    public static class Child {
+        private final double[] buckets;
+        private final LongAdder[] counts;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Child(double[] buckets) {
+            this.buckets = buckets;
+            this.counts = new LongAdder[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double seconds) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (seconds <= buckets[i]) {
+                    counts[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(seconds);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+}
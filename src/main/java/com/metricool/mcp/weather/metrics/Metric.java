@@ -0,0 +1,105 @@
+package com.metricool.mcp.weather.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A named metric with one child per combination of label values, written in the Prometheus text format.
+ *
+ * @param <C> type of the per-label child
+ */
+public abstract class Metric<C> {
+
+    private final String name;
+    private final String help;
+    private final String type;
+    private final String[] labelNames;
+    private final Map<List<String>, C> children = new ConcurrentHashMap<>();
+
+
+    protected Metric(String name, String help, String type, String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+        this.labelNames = labelNames;
+    }
+
+
+    /**
+     * @return the child for these label values, in the order the label names were declared
+     */
+    public C labels(String... labelValues) {
+        if (labelValues.length != labelNames.length) {
+            throw new IllegalArgumentException(name + " expects labels " + Arrays.toString(labelNames));
+        }
+        return children.computeIfAbsent(List.of(labelValues), values -> newChild());
+    }
+
+
+    /**
+     * Replace the child for these label values.
+     */
+    protected void putChild(C child, String... labelValues) {
+        labels(labelValues);
+        children.put(List.of(labelValues), child);
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    protected abstract C newChild();
+
+
+    /**
+     * Append the samples of one child.
+     *
+     * @param labels the child labels, formatted as {@code a="x",b="y"}, possibly empty
+     */
+    protected abstract void writeChild(StringBuilder out, String labels, C child);
+
+
+    void write(StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        children.forEach((values, child) -> writeChild(out, formatLabels(values), child));
+    }
+
+
+    /**
+     * Append one sample line.
+     */
+    protected void writeSample(StringBuilder out, String suffix, String labels, double value) {
+        out.append(name).append(suffix);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+
+    private String formatLabels(List<String> values) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(labelNames[i]).append("=\"")
+                  .append(values.get(i).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                  .append('"');
+        }
+        return labels.toString();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.metricool.mcp.weather.metrics;
+
+
+/**
+ * Metrics of the tools and of the upstream calls.
+ *
+ * Exposed by {@link MetricsServlet} on the SSE server.
+ */
+public final class Metrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final Counter TOOL_CALLS = REGISTRY.counter("mcp_tool_calls_total",
+            "Tool calls.", "tool");
+    public static final Counter TOOL_ERRORS = REGISTRY.counter("mcp_tool_errors_total",
+            "Tool calls answered with an error, by exception type.", "tool", "exception");
+    public static final Histogram TOOL_DURATION = REGISTRY.histogram("mcp_tool_duration_seconds",
+            "Tool call latency.", "tool");
+
+    public static final Histogram UPSTREAM_DURATION = REGISTRY.histogram("upstream_request_duration_seconds",
+            "Upstream request latency, including reading and parsing the body.", "endpoint");
+    public static final Counter UPSTREAM_RESPONSES = REGISTRY.counter("upstream_responses_total",
+            "Upstream responses by HTTP status.", "endpoint", "status");
+    public static final Counter UPSTREAM_ERRORS = REGISTRY.counter("upstream_errors_total",
+            "Upstream requests that failed, by exception type.", "endpoint", "exception");
+    public static final Counter UPSTREAM_RECEIVED_BYTES = REGISTRY.counter("upstream_received_bytes_total",
+            "Upstream response body bytes, as transferred.", "endpoint");
+    public static final Counter UPSTREAM_DECODED_BYTES = REGISTRY.counter("upstream_decoded_bytes_total",
+            "Upstream response body bytes after decompression.", "endpoint");
+    public static final Gauge UPSTREAM_IN_FLIGHT = REGISTRY.gauge("upstream_in_flight_requests",
+            "Upstream requests in progress.", "endpoint");
+
+    private Metrics() {
+    }
+
+
+    /**
+     * Record a finished tool call.
+     *
+     * @param startNanos {@link System#nanoTime()} when the call started
+     * @param error      the failure, or null on success
+     */
+    public static void recordToolCall(String tool, long startNanos, Throwable error) {
+        TOOL_CALLS.inc(tool);
+        TOOL_DURATION.observeSince(startNanos, tool);
+        if (error != null) {
+            TOOL_ERRORS.inc(tool, error.getClass().getSimpleName());
+        }
+    }
+
+
+    /**
+     * Record a failed upstream request.
+     */
+    public static void recordUpstreamError(String endpoint, Throwable error) {
+        UPSTREAM_ERRORS.inc(endpoint, error.getClass().getSimpleName());
+    }
+
+}
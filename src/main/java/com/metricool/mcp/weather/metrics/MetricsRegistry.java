@@ -0,0 +1,55 @@
+package com.metricool.mcp.weather.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+
+/**
+ * Set of metrics scraped together.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, Metric<?>> metrics = new ConcurrentSkipListMap<>();
+
+
+    public Counter counter(String name, String help, String... labelNames) {
+        return register(new Counter(name, help, labelNames));
+    }
+
+
+    public Gauge gauge(String name, String help, String... labelNames) {
+        return register(new Gauge(name, help, "gauge", labelNames));
+    }
+
+
+    /**
+     * A counter whose values are read from suppliers, for counts kept elsewhere.
+     */
+    public Gauge counterFunction(String name, String help, String... labelNames) {
+        return register(new Gauge(name, help, "counter", labelNames));
+    }
+
+
+    public Histogram histogram(String name, String help, String... labelNames) {
+        return register(new Histogram(name, help, labelNames));
+    }
+
+
+    /**
+     * @return all metrics in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        metrics.values().forEach(metric -> metric.write(out));
+        return out.toString();
+    }
+
+
+    private <M extends Metric<?>> M register(M metric) {
+        if (metrics.putIfAbsent(metric.getName(), metric) != null) {
+            throw new IllegalArgumentException("Metric already registered: " + metric.getName());
+        }
+        return metric;
+    }
+
+}
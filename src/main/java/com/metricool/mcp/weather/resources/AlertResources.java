@@ -0,0 +1,96 @@
+package com.metricool.mcp.weather.resources;
+
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.metricool.mcp.weather.service.AlertView;
+import com.metricool.mcp.weather.service.WeatherService;
+
+
+/**
+ * The active alerts of a state as a resource, {@code alerts://NY}, which clients can subscribe to
+ * instead of polling the {@code get_alerts} tool.
+ *
+ * Its content is the JSON alert view: id, event, severity, area, sent and expires of every alert,
+ * newest first.
+ */
+public final class AlertResources {
+
+    public static final String SCHEME = "alerts://";
+    private static final String MIME_TYPE = "application/json";
+
+    /**
+     * States, the District of Columbia and territories, as in the {@code /alerts/active/area} endpoint.
+     */
+    static final List<String> STATES = List.of(
+            "AL", "AK", "AZ", "AR", "CA", "CO", "CT", "DE", "FL", "GA", "HI", "ID", "IL", "IN", "IA", "KS", "KY",
+            "LA", "ME", "MD", "MA", "MI", "MN", "MS", "MO", "MT", "NE", "NV", "NH", "NJ", "NM", "NY", "NC", "ND",
+            "OH", "OK", "OR", "PA", "RI", "SC", "SD", "TN", "TX", "UT", "VT", "VA", "WA", "WV", "WI", "WY",
+            "DC", "PR", "VI", "GU", "AS", "MP");
+
+    private AlertResources() {
+    }
+
+
+    public static String uri(String state) {
+        return SCHEME + state.toUpperCase(Locale.ENGLISH);
+    }
+
+
+    /**
+     * @return the state of an alert resource URI, or null if it is not one
+     */
+    public static String state(String uri) {
+        if (uri == null || !uri.startsWith(SCHEME)) {
+            return null;
+        }
+        String state = uri.substring(SCHEME.length());
+        return STATES.contains(state) ? state : null;
+    }
+
+
+    /**
+     * @param ws the service shared by all reads of the resources
+     * @return one resource per state
+     */
+    public static List<McpServerFeatures.SyncResourceSpecification> alerts(WeatherService ws) {
+        return STATES.stream().map(state -> new McpServerFeatures.SyncResourceSpecification(resource(state),
+                (exchange, request) -> {
+                    try {
+                        return result(request.uri(), ws.getAlerts(state, AlertView.RESOURCE));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted reading " + request.uri(), e);
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Cannot read " + request.uri() + ": " + e.getMessage(), e);
+                    }
+                })).toList();
+    }
+
+
+    /**
+     * Non-blocking variant of {@link #alerts(WeatherService)}, for an async MCP server.
+     */
+    public static List<McpServerFeatures.AsyncResourceSpecification> alertsAsync(WeatherService ws) {
+        return STATES.stream().map(state -> new McpServerFeatures.AsyncResourceSpecification(resource(state),
+                (exchange, request) -> Mono.fromFuture(() -> ws.getAlertsAsync(state, AlertView.RESOURCE))
+                        .map(text -> result(request.uri(), text)))).toList();
+    }
+
+
+    private static McpSchema.Resource resource(String state) {
+        return new McpSchema.Resource(uri(state), "Alerts " + state,
+                "Active weather alerts for " + state + ", newest first. Subscribe to be notified when they change.",
+                MIME_TYPE, null);
+    }
+
+
+    private static McpSchema.ReadResourceResult result(String uri, String text) {
+        return new McpSchema.ReadResourceResult(List.of(new McpSchema.TextResourceContents(uri, MIME_TYPE, text)));
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.metricool.mcp.weather.resources;
+
+import io.modelcontextprotocol.server.McpServer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.metricool.mcp.weather.service.WeatherService;
+import com.metricool.mcp.weather.transport.SubscribingTransportProvider;
+
+
+/**
+ * A class that defines resources for the MCP server.
+ *
+ * Subscribers of a state's alerts are notified when an alert of the state is added or removed.
+ * Changes come from polling the national alerts feed, once for every subscriber, started by the
+ * first subscription.
+ */
+public final class McpResources {
+
+    private McpResources() {
+    }
+
+
+    /**
+     * Add all resources to the MCP server being built. They are added before the server is built
+     * so that no list changed notification is sent for each of them.
+     *
+     * @param server        The specification of the MCP server to add resources to.
+     * @param ws            The service every resource read goes through.
+     * @param subscriptions The transport sessions subscribe through, or null if the transport cannot notify them.
+     */
+    public static McpServer.SyncSpecification addAllTo(McpServer.SyncSpecification server, WeatherService ws,
+            SubscribingTransportProvider subscriptions) {
+        notifyAlertChanges(ws, subscriptions);
+        return server.resources(AlertResources.alerts(ws));
+    }
+
+
+    /**
+     * Add the non-blocking variant of all resources to the async MCP server being built.
+     *
+     * @param server        The specification of the MCP server to add resources to.
+     * @param ws            The service every resource read goes through.
+     * @param subscriptions The transport sessions subscribe through, or null if the transport cannot notify them.
+     */
+    public static McpServer.AsyncSpecification addAllTo(McpServer.AsyncSpecification server, WeatherService ws,
+            SubscribingTransportProvider subscriptions) {
+        notifyAlertChanges(ws, subscriptions);
+        return server.resources(AlertResources.alertsAsync(ws));
+    }
+
+
+    /**
+     * @return true if the resource can be subscribed to
+     */
+    public static boolean isSubscribable(String uri) {
+        return AlertResources.state(uri) != null;
+    }
+
+
+    private static void notifyAlertChanges(WeatherService ws, SubscribingTransportProvider subscriptions) {
+        if (subscriptions == null) {
+            return;
+        }
+        AtomicBoolean watching = new AtomicBoolean();
+        subscriptions.onSubscribe(uri -> {
+            if (AlertResources.state(uri) != null && watching.compareAndSet(false, true)) {
+                ws.watchAlerts(diff -> diff.states().forEach(state -> subscriptions.notifyUpdated(AlertResources.uri(state))));
+            }
+        });
+    }
+
+}
@@ -1,15 +1,33 @@
 package com.metricool.mcp.weather.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metricool.mcp.weather.cluster.Cluster;
+import com.metricool.mcp.weather.cluster.PeerServlet;
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.metrics.MetricsServlet;
+import com.metricool.mcp.weather.resources.McpResources;
+import com.metricool.mcp.weather.service.WeatherService;
 import com.metricool.mcp.weather.tools.McpTools;
+import com.metricool.mcp.weather.transport.SessionStore;
+import com.metricool.mcp.weather.transport.StreamableHttpServerTransportProvider;
+import com.metricool.mcp.weather.transport.SubscribingTransportProvider;
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.Json;
 
+import io.modelcontextprotocol.server.McpAsyncServer;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.server.McpSyncServer;
 import io.modelcontextprotocol.server.transport.HttpServletSseServerTransportProvider;
 import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import jakarta.servlet.http.HttpServlet;
 import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
 import org.eclipse.jetty.ee10.servlet.ServletHolder;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,59 +39,94 @@ public class McpSseServer {
     public static final String MCP_SERVER_BASE_URI = "http://localhost:8080";
     public static final String MCP_SERVER_MSG_ENDPOINT = "/mcp/message";
     public static final String MCP_SERVER_SSE_ENDPOINT = "/sse";
+    public static final String MCP_SERVER_STREAMABLE_ENDPOINT = "/mcp";
+    public static final String MCP_SERVER_METRICS_ENDPOINT = "/metrics";
+
+    private static final int PORT = Config.getInt("server.port", 8080);
 
     private McpSyncServer server;
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private McpAsyncServer asyncServer;
+    private final ThreadMode threadMode = ThreadMode.fromConfig();
+    private final TransportMode transportMode = TransportMode.fromConfig();
+    private final WeatherService weatherService = new WeatherService();
+    private static final ObjectMapper JSON = Json.MAPPER;
 
     /**
-     * Initialize the HTTP SSE MCP server.
+     * Initialize the HTTP MCP server, with the SSE or the streamable HTTP transport.
      */
     private void initialize() {
+        // Streamable HTTP has no stream to send resource updates on
         McpSchema.ServerCapabilities serverCapabilities = McpSchema.ServerCapabilities.builder()
             .tools(true)
             .prompts(true)
-            .resources(true, true)
+            .resources(transportMode != TransportMode.STREAMABLE, true)
             .build();
 
-        HttpServletSseServerTransportProvider transport = new HttpServletSseServerTransportProvider(
-            JSON, MCP_SERVER_MSG_ENDPOINT, MCP_SERVER_SSE_ENDPOINT
-        );
-        server = McpServer.sync(transport)
-            .serverInfo(ServerInfo.SERVER_NAME, ServerInfo.SERVER_VERSION)
-            .capabilities(serverCapabilities)
-            .build();
+        threadMode.applyToToolCalls();
+
+        McpServerTransportProvider transport = transportMode == TransportMode.STREAMABLE
+            ? new StreamableHttpServerTransportProvider(JSON, SessionStore.fromConfig())
+            : new HttpServletSseServerTransportProvider(JSON, MCP_SERVER_MSG_ENDPOINT, MCP_SERVER_SSE_ENDPOINT);
+        SubscribingTransportProvider subscriptions = transportMode == TransportMode.STREAMABLE
+            ? null
+            : new SubscribingTransportProvider(transport, McpResources::isSubscribable);
+        McpServerTransportProvider serverTransport = subscriptions != null ? subscriptions : transport;
+        if (ServerMode.fromConfig() == ServerMode.ASYNC) {
+            asyncServer = McpResources.addAllTo(McpServer.async(serverTransport), weatherService, subscriptions)
+                .serverInfo(ServerInfo.SERVER_NAME, ServerInfo.SERVER_VERSION)
+                .capabilities(serverCapabilities)
+                .build();
+
+            // Add prompts and tools to the MCP server
+            McpTools.addAllTo(asyncServer, weatherService);
+        } else {
+            server = McpResources.addAllTo(McpServer.sync(serverTransport), weatherService, subscriptions)
+                .serverInfo(ServerInfo.SERVER_NAME, ServerInfo.SERVER_VERSION)
+                .capabilities(serverCapabilities)
+                .build();
+
+            // Add prompts and tools to the MCP server
+            //McpPrompts.addAllTo(server);
+            McpTools.addAllTo(server, weatherService);
+        }
 
-        // Add resources, prompts, and tools to the MCP server
-        //McpResources.addAllTo(server);
-        //McpPrompts.addAllTo(server);
-        McpTools.addAllTo(server);
+        weatherService.start();
 
         // Start the HTTP server
-        startHttpServer(transport);
+        startHttpServer((HttpServlet) transport);
     }
 
     /**
      * Start the HTTP server with Jetty.
      */
-    private void startHttpServer(HttpServletSseServerTransportProvider transport) {
+    private void startHttpServer(HttpServlet transport) {
         ServletContextHandler servletContextHandler = new ServletContextHandler(ServletContextHandler.SESSIONS);
         servletContextHandler.setContextPath("/");
 
         ServletHolder servletHolder = new ServletHolder(transport);
-        servletContextHandler.addServlet(servletHolder, "/*");
+        servletContextHandler.addServlet(servletHolder, transportMode == TransportMode.STREAMABLE ? MCP_SERVER_STREAMABLE_ENDPOINT : "/*");
+        servletContextHandler.addServlet(new ServletHolder(new MetricsServlet()), MCP_SERVER_METRICS_ENDPOINT);
+        if (Cluster.isEnabled()) {
+            servletContextHandler.addServlet(new ServletHolder(new PeerServlet(weatherService, Cluster.getConfiguredSecret())), Cluster.FETCH_PATH);
+        }
 
-        Server httpserver = new Server(8080);
+        Server httpserver = new Server(createThreadPool());
+        ServerConnector connector = new ServerConnector(httpserver);
+        connector.setPort(PORT);
+        httpserver.addConnector(connector);
+        Metrics.REGISTRY.gauge("http_server_connections", "Open client connections.")
+                .bind(() -> connector.getConnectedEndPoints().size());
         httpserver.setHandler(servletContextHandler);
 
         try {
             httpserver.start();
-            logger.info("Jetty-based HTTP server started on http://127.0.0.1:8080");
+            logger.info("Jetty-based HTTP server started on http://127.0.0.1:{} using {} transport and {} threads", PORT, transportMode, threadMode);
 
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 try {
                     logger.info("Shutting down HTTP server");
                     httpserver.stop();
-                    server.close();
+                    closeServer();
                 } catch (Exception e) {
                     logger.error("Error stopping HTTP server", e);
                 }
@@ -82,9 +135,34 @@ public class McpSseServer {
             // Wait for the HTTP server to stop
             httpserver.join();
         } catch (Exception e) {
-            logger.error("Error starting HTTP server on http://127.0.0.1:8080", e);
+            logger.error("Error starting HTTP server on http://127.0.0.1:{}", PORT, e);
+            closeServer();
+        }
+    }
+
+    /**
+     * Create the Jetty thread pool handling HTTP requests, backed by virtual threads in {@link ThreadMode#VIRTUAL}.
+     */
+    private ThreadPool createThreadPool() {
+        QueuedThreadPool threadPool = new QueuedThreadPool(Config.getInt("server.threads.max", 200));
+        threadPool.setName("mcp-http");
+        if (threadMode == ThreadMode.VIRTUAL) {
+            threadPool.setVirtualThreadsExecutor(VirtualThreads.getNamedVirtualThreadsExecutor("mcp-http-virtual"));
+        }
+        return threadPool;
+    }
+
+    /**
+     * Close whichever MCP server, sync or async, was started.
+     */
+    private void closeServer() {
+        weatherService.stop();
+        if (server != null) {
             server.close();
         }
+        if (asyncServer != null) {
+            asyncServer.close();
+        }
     }
 
     /**
@@ -1,7 +1,12 @@
 package com.metricool.mcp.weather.server;
 
+import com.metricool.mcp.weather.resources.McpResources;
+import com.metricool.mcp.weather.service.WeatherService;
 import com.metricool.mcp.weather.tools.McpTools;
+import com.metricool.mcp.weather.transport.SubscribingTransportProvider;
+import com.metricool.mcp.weather.utils.Json;
 
+import io.modelcontextprotocol.server.McpAsyncServer;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.server.McpSyncServer;
 import io.modelcontextprotocol.server.transport.StdioServerTransportProvider;
@@ -17,21 +22,43 @@ public class McpStdioServer {
      */
     private McpSyncServer server;
 
+    /**
+     * The MCP async server instance, used instead of the sync one in {@link ServerMode#ASYNC}.
+     */
+    private McpAsyncServer asyncServer;
+
+    /**
+     * The transport, which also keeps the resource subscriptions of the client.
+     */
+    private final SubscribingTransportProvider transport = new SubscribingTransportProvider(
+            new StdioServerTransportProvider(Json.MAPPER), McpResources::isSubscribable);
+
     
     /**
      * Initialize the STDIO MCP server.
+     *
+     * @param weatherService the service resources are read through
      */
-    private void initialize() {
+    private void initialize(WeatherService weatherService) {
         McpSchema.ServerCapabilities serverCapabilities = McpSchema.ServerCapabilities.builder()
             .tools(true)
             .prompts(true)
             .resources(true, true)
             .build();
 
-        server = McpServer.sync(new StdioServerTransportProvider())
-            .serverInfo(ServerInfo.SERVER_NAME, ServerInfo.SERVER_VERSION)
-            .capabilities(serverCapabilities)
-            .build();
+        ThreadMode.fromConfig().applyToToolCalls();
+
+        if (ServerMode.fromConfig() == ServerMode.ASYNC) {
+            asyncServer = McpResources.addAllTo(McpServer.async(transport), weatherService, transport)
+                .serverInfo(ServerInfo.SERVER_NAME, ServerInfo.SERVER_VERSION)
+                .capabilities(serverCapabilities)
+                .build();
+        } else {
+            server = McpResources.addAllTo(McpServer.sync(transport), weatherService, transport)
+                .serverInfo(ServerInfo.SERVER_NAME, ServerInfo.SERVER_VERSION)
+                .capabilities(serverCapabilities)
+                .build();
+        }
 
         // We are in STDIO mode, so logging is unavailable and messages are output to STDERR only
         System.err.println(ServerInfo.SERVER_NAME + " " + ServerInfo.SERVER_VERSION + " initialized in STDIO mode");
@@ -42,14 +69,24 @@ public class McpStdioServer {
      * Main entry point for the STDIO MCP server.
      */
     public static void main(String[] args) {
+        // Build the shared service first: the transport reads requests as soon as the server is initialized,
+        // and tools/list must not race with loading the HTTP client
+        WeatherService weatherService = new WeatherService();
+        weatherService.start();
+        // Agents end STDIO servers with a signal: still write the cache snapshot for the next one
+        Runtime.getRuntime().addShutdownHook(new Thread(weatherService::stop));
+
         // Initialize MCP server
         McpStdioServer mcpStdioServer = new McpStdioServer();
-        mcpStdioServer.initialize();
+        mcpStdioServer.initialize(weatherService);
         
-        // Add resources, prompts, and tools to the MCP server
-        //McpResources.addAllTo(mcpStdioServer.server);
+        // Add prompts and tools to the MCP server
         //McpPrompts.addAllTo(mcpStdioServer.server);
-        McpTools.addAllTo(mcpStdioServer.server);
+        if (mcpStdioServer.asyncServer != null) {
+            McpTools.addAllTo(mcpStdioServer.asyncServer, weatherService);
+        } else {
+            McpTools.addAllTo(mcpStdioServer.server, weatherService);
+        }
     }
 
 }
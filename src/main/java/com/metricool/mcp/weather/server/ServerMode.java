@@ -0,0 +1,27 @@
+package com.metricool.mcp.weather.server;
+
+import java.util.Locale;
+
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * How the MCP server runs its tools, selected with {@code server.mode}.
+ */
+public enum ServerMode {
+
+    /**
+     * {@code McpSyncServer}: each tool call blocks a thread until the upstream answers.
+     */
+    SYNC,
+
+    /**
+     * {@code McpAsyncServer}: tool calls are non-blocking pipelines on {@code HttpClient.sendAsync}.
+     */
+    ASYNC;
+
+
+    public static ServerMode fromConfig() {
+        return valueOf(Config.get("server.mode", SYNC.name()).toUpperCase(Locale.ENGLISH));
+    }
+}
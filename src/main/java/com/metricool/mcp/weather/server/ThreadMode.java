@@ -0,0 +1,51 @@
+package com.metricool.mcp.weather.server;
+
+import java.util.Locale;
+
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * Which threads handle HTTP requests and blocking tool calls, selected with {@code server.threads}.
+ */
+public enum ThreadMode {
+
+    /**
+     * A bounded pool of platform threads, sized with {@code server.threads.max}.
+     */
+    PLATFORM,
+
+    /**
+     * One virtual thread per request and per tool call, so blocking upstream I/O no longer
+     * limits concurrency. Needs a Java 21 runtime; falls back to {@link #PLATFORM} otherwise.
+     */
+    VIRTUAL;
+
+    /**
+     * Reactor switches its default bounded elastic scheduler, where the MCP SDK runs sync tools,
+     * to virtual threads when this is set before the scheduler is first used.
+     */
+    private static final String REACTOR_VIRTUAL_THREADS = "reactor.schedulers.defaultBoundedElasticOnVirtualThreads";
+
+
+    public static ThreadMode fromConfig() {
+        ThreadMode mode = valueOf(Config.get("server.threads", PLATFORM.name()).toUpperCase(Locale.ENGLISH));
+        if (mode == VIRTUAL && Runtime.version().feature() < 21) {
+            // We may be in STDIO mode, so logging is unavailable and messages are output to STDERR only
+            System.err.println("Virtual threads are not supported by Java " + Runtime.version().feature() + ", using platform threads");
+            return PLATFORM;
+        }
+        return mode;
+    }
+
+
+    /**
+     * Run blocking tool calls on this kind of thread. Must be called before the MCP server is built.
+     */
+    public void applyToToolCalls() {
+        if (this == VIRTUAL) {
+            System.setProperty(REACTOR_VIRTUAL_THREADS, "true");
+        }
+    }
+
+}
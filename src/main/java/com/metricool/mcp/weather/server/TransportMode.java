@@ -0,0 +1,29 @@
+package com.metricool.mcp.weather.server;
+
+import java.util.Locale;
+
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * How the HTTP server talks to MCP clients, selected with {@code server.transport}.
+ */
+public enum TransportMode {
+
+    /**
+     * A long-lived SSE stream per client, on {@code /sse} and {@code /mcp/message}: every request of a
+     * client must reach the node holding its stream.
+     */
+    SSE,
+
+    /**
+     * Stateless streamable HTTP on {@code /mcp}: every request is answered in its own response, so any
+     * replica can serve it, given a shared {@code session.store}.
+     */
+    STREAMABLE;
+
+
+    public static TransportMode fromConfig() {
+        return valueOf(Config.get("server.transport", SSE.name()).toUpperCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,81 @@
+package com.metricool.mcp.weather.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+
+
+/**
+ * What part of the alerts a tool call asks for, from its {@code format}, {@code fields},
+ * {@code limit} and {@code minSeverity} arguments.
+ *
+ * @param fields      alert fields rendered in {@link OutputFormat#JSON}, in this order
+ * @param limit       maximum number of alerts, newest first; 0 for all
+ * @param minSeverity lowest severity rank included, see {@link #severityRank(String)}
+ */
+public record AlertView(OutputFormat format, List<String> fields, int limit, int minSeverity) {
+
+    /**
+     * Alert fields that can be selected, in the order they are rendered.
+     */
+    static final Map<String, Function<Alert.Properties, Object>> FIELDS = new LinkedHashMap<>();
+    static {
+        FIELDS.put("id", Alert.Properties::id);
+        FIELDS.put("event", Alert.Properties::event);
+        FIELDS.put("severity", Alert.Properties::severity);
+        FIELDS.put("areaDesc", Alert.Properties::areaDesc);
+        FIELDS.put("sent", Alert.Properties::sent);
+        FIELDS.put("expires", Alert.Properties::expires);
+        FIELDS.put("description", Alert.Properties::description);
+        FIELDS.put("instruction", Alert.Properties::instruction);
+    }
+
+    private static final List<String> SEVERITIES = List.of("unknown", "minor", "moderate", "severe", "extreme");
+
+    private static final List<String> DEFAULT_FIELDS = List.of("event", "severity", "areaDesc", "expires");
+
+    /**
+     * Every alert, as text.
+     */
+    public static final AlertView DEFAULT = new AlertView(OutputFormat.TEXT, DEFAULT_FIELDS, 0, 0);
+
+    /**
+     * Every alert, as JSON with its id and times, for the alert resources.
+     */
+    public static final AlertView RESOURCE = new AlertView(OutputFormat.JSON,
+            List.of("id", "event", "severity", "areaDesc", "sent", "expires"), 0, 0);
+
+
+    /**
+     * @throws IllegalArgumentException if an argument is invalid
+     */
+    public static AlertView fromArguments(Map<String, Object> args) {
+        Object minSeverity = args.get("minSeverity");
+        int minSeverityRank = minSeverity == null ? 0 : severityRank(minSeverity.toString());
+        if (minSeverityRank < 0) {
+            throw new IllegalArgumentException("Unknown minSeverity: " + minSeverity + ", expected one of " + SEVERITIES);
+        }
+        return new AlertView(OutputFormat.fromArgument(args.get("format")),
+                ViewArguments.fields(args.get("fields"), FIELDS.keySet(), DEFAULT_FIELDS),
+                ViewArguments.limit(args.get("limit"), "limit"),
+                minSeverityRank);
+    }
+
+
+    /**
+     * @return 0 (Unknown) to 4 (Extreme), or -1 if not a CAP severity
+     */
+    static int severityRank(String severity) {
+        return severity == null ? 0 : SEVERITIES.indexOf(severity.toLowerCase(Locale.ENGLISH));
+    }
+
+
+    boolean includes(Alert.Properties properties) {
+        return minSeverity == 0 || Math.max(0, severityRank(properties.severity())) >= minSeverity;
+    }
+
+}
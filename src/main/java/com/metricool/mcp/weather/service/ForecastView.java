@@ -0,0 +1,57 @@
+package com.metricool.mcp.weather.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.metricool.mcp.weather.service.WeatherService.Forecast;
+
+
+/**
+ * What part of a forecast a tool call asks for, from its {@code format}, {@code fields} and
+ * {@code periods} arguments.
+ *
+ * @param fields  period fields rendered in {@link OutputFormat#JSON}, in this order
+ * @param periods maximum number of periods, from the next one; 0 for all
+ */
+public record ForecastView(OutputFormat format, List<String> fields, int periods) {
+
+    /**
+     * Period fields that can be selected, in the order they are rendered.
+     */
+    static final Map<String, Function<Forecast.Period, Object>> FIELDS = new LinkedHashMap<>();
+    static {
+        FIELDS.put("name", Forecast.Period::name);
+        FIELDS.put("startTime", Forecast.Period::startTime);
+        FIELDS.put("endTime", Forecast.Period::endTime);
+        FIELDS.put("isDaytime", Forecast.Period::isDayTime);
+        FIELDS.put("temperature", Forecast.Period::temperature);
+        FIELDS.put("temperatureUnit", Forecast.Period::temperatureUnit);
+        FIELDS.put("temperatureTrend", Forecast.Period::temperatureTrend);
+        FIELDS.put("precipitationProbability", p -> p.probabilityOfPrecipitation() == null ? null : p.probabilityOfPrecipitation().get("value"));
+        FIELDS.put("windSpeed", Forecast.Period::windSpeed);
+        FIELDS.put("windDirection", Forecast.Period::windDirection);
+        FIELDS.put("shortForecast", Forecast.Period::shortForecast);
+        FIELDS.put("detailedForecast", Forecast.Period::detailedForecast);
+    }
+
+    private static final List<String> DEFAULT_FIELDS = List.of("name", "startTime", "temperature", "temperatureUnit",
+            "precipitationProbability", "windSpeed", "windDirection", "shortForecast");
+
+    /**
+     * Every period, as text.
+     */
+    public static final ForecastView DEFAULT = new ForecastView(OutputFormat.TEXT, DEFAULT_FIELDS, 0);
+
+
+    /**
+     * @throws IllegalArgumentException if an argument is invalid
+     */
+    public static ForecastView fromArguments(Map<String, Object> args) {
+        return new ForecastView(OutputFormat.fromArgument(args.get("format")),
+                ViewArguments.fields(args.get("fields"), FIELDS.keySet(), DEFAULT_FIELDS),
+                ViewArguments.limit(args.get("periods"), "periods"));
+    }
+
+}
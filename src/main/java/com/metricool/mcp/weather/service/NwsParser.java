@@ -0,0 +1,208 @@
+package com.metricool.mcp.weather.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+import com.metricool.mcp.weather.service.WeatherService.Forecast;
+import com.metricool.mcp.weather.service.WeatherService.Points;
+import com.metricool.mcp.weather.utils.Json;
+
+
+/**
+ * Streaming parsers for the api.weather.gov GeoJSON responses.
+ *
+ * They walk the token stream straight from the response body, skip {@code geometry} and every
+ * other unused subtree without materializing it, and bind each alert or forecast period to
+ * its record as soon as it is read. Nothing holds the whole document, as a String or a tree.
+ *
+ * The record readers are built once, so their deserializers are resolved when the class loads
+ * rather than on the first request.
+ */
+public final class NwsParser {
+
+    private static final ObjectMapper objectMapper = Json.MAPPER;
+    private static final ObjectReader pointsReader = objectMapper.readerFor(Points.class);
+    private static final ObjectReader periodReader = objectMapper.readerFor(Forecast.Period.class);
+    private static final ObjectReader alertPropertiesReader = objectMapper.readerFor(Alert.Properties.class);
+
+    private NwsParser() {
+    }
+
+
+    /**
+     * Parse a {@code /points/{lat},{lon}} response.
+     */
+    public static Points parsePoints(InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return pointsReader.readValue(parser);
+        }
+    }
+
+
+    /**
+     * Parse a {@code /gridpoints/{office}/{x},{y}/forecast} response.
+     */
+    public static Forecast parseForecast(InputStream body) throws IOException {
+        return parseForecast(body, null);
+    }
+
+
+    /**
+     * Parse a {@code /gridpoints/{office}/{x},{y}/forecast} response, and pass the outline of its
+     * grid cell to a listener.
+     *
+     * @param cellListener receives the longitude/latitude pairs of the cell polygon, if the response has one;
+     *                     null to skip the geometry
+     */
+    public static Forecast parseForecast(InputStream body, Consumer<double[]> cellListener) throws IOException {
+        List<Forecast.Period> periods = new ArrayList<>();
+        double[] cell = null;
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            startObject(parser);
+            while (nextField(parser)) {
+                if (cellListener != null && "geometry".equals(parser.currentName()) && parser.nextToken() == JsonToken.START_OBJECT) {
+                    cell = parsePolygon(parser);
+                } else if ("properties".equals(parser.currentName()) && parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (nextField(parser)) {
+                        if ("periods".equals(parser.currentName()) && parser.nextToken() == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                periods.add(periodReader.readValue(parser));
+                            }
+                        } else {
+                            skipValue(parser);
+                        }
+                    }
+                } else {
+                    skipValue(parser);
+                }
+            }
+        }
+        if (cell != null) {
+            cellListener.accept(cell);
+        }
+        return new Forecast(new Forecast.Props(periods));
+    }
+
+
+    /**
+     * Read the outer ring of a GeoJSON Polygon geometry, from inside its object.
+     *
+     * @return the longitude/latitude pairs, or null for any other geometry
+     */
+    private static double[] parsePolygon(JsonParser parser) throws IOException {
+        String type = null;
+        double[] ring = null;
+        while (nextField(parser)) {
+            if ("type".equals(parser.currentName())) {
+                type = parser.nextTextValue();
+            } else if ("coordinates".equals(parser.currentName()) && parser.nextToken() == JsonToken.START_ARRAY) {
+                ring = parseRing(parser);
+            } else {
+                skipValue(parser);
+            }
+        }
+        return "Polygon".equals(type) ? ring : null;
+    }
+
+
+    /**
+     * Read the first ring of polygon coordinates, {@code [[[lon, lat], ...], ...]}, from inside the outer array.
+     */
+    private static double[] parseRing(JsonParser parser) throws IOException {
+        double[] ring = new double[16];
+        int size = 0;
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                if (size + 2 > ring.length) {
+                    ring = Arrays.copyOf(ring, ring.length * 2);
+                }
+                parser.nextToken();
+                ring[size++] = parser.getDoubleValue();
+                parser.nextToken();
+                ring[size++] = parser.getDoubleValue();
+                // Skip an altitude, if any
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    skipValue(parser);
+                }
+            }
+            // Skip the holes
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            }
+        }
+        return Arrays.copyOf(ring, size);
+    }
+
+
+    /**
+     * Parse an {@code /alerts/active...} feature collection.
+     */
+    public static Alert parseAlerts(InputStream body) throws IOException {
+        List<Alert.Feature> features = new ArrayList<>();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            startObject(parser);
+            while (nextField(parser)) {
+                if ("features".equals(parser.currentName()) && parser.nextToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        features.add(new Alert.Feature(parseAlertProperties(parser)));
+                    }
+                } else {
+                    skipValue(parser);
+                }
+            }
+        }
+        return new Alert(features);
+    }
+
+
+    private static Alert.Properties parseAlertProperties(JsonParser parser) throws IOException {
+        Alert.Properties properties = null;
+        while (nextField(parser)) {
+            if ("properties".equals(parser.currentName()) && parser.nextToken() == JsonToken.START_OBJECT) {
+                properties = alertPropertiesReader.readValue(parser);
+            } else {
+                // geometry, id, type...
+                skipValue(parser);
+            }
+        }
+        return properties;
+    }
+
+
+    private static void startObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object at " + parser.currentLocation());
+        }
+    }
+
+
+    /**
+     * Advance to the next field of the current object.
+     *
+     * @return false at the end of the object
+     */
+    private static boolean nextField(JsonParser parser) throws IOException {
+        return parser.nextToken() == JsonToken.FIELD_NAME;
+    }
+
+
+    /**
+     * Skip the value of the current field, or the rest of it if its first token was already read.
+     */
+    private static void skipValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() == JsonToken.FIELD_NAME ? parser.nextToken() : parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.metricool.mcp.weather.service;
+
+import java.util.Locale;
+
+
+/**
+ * How a tool renders its result, selected with its {@code format} argument.
+ */
+public enum OutputFormat {
+
+    /**
+     * Human readable text, every field of every item.
+     */
+    TEXT,
+
+    /**
+     * Compact JSON with only the selected fields.
+     */
+    JSON;
+
+
+    /**
+     * @param argument the {@code format} tool argument, or null for {@link #TEXT}
+     */
+    public static OutputFormat fromArgument(Object argument) {
+        if (argument == null) {
+            return TEXT;
+        }
+        try {
+            return valueOf(argument.toString().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + argument + ", expected text or json");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.metricool.mcp.weather.service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.metricool.mcp.weather.cache.LruCache;
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+import com.metricool.mcp.weather.service.WeatherService.Forecast;
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.Json;
+
+
+/**
+ * Renders forecasts and alerts for the tools, as text or compact JSON.
+ *
+ * Renderings are cached by parsed response and view. The response cache hands out the same parsed
+ * instance until the upstream data changes, so repeated calls for the same location or area return
+ * the rendered string of the first call instead of formatting it again. The cache holds
+ * {@code render.cache.max-entries} renderings and compares responses by identity, which is cheap.
+ * It only holds the responses weakly, so renderings never keep a response alive once the response
+ * cache dropped it.
+ *
+ * Alerts selected from the {@link com.metricool.mcp.weather.alerts.AlertIndex} are new on every
+ * call: they are rendered with {@link #renderUncached(Alert, AlertView)}, which would only churn
+ * the cache.
+ */
+public final class Renderer {
+
+    private static final class Key {
+
+        private final WeakReference<Object> source;
+        private final int hash;
+        private final Object view;
+
+        Key(Object source, Object view) {
+            this.source = new WeakReference<>(source);
+            this.hash = 31 * System.identityHashCode(source) + view.hashCode();
+            this.view = view;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            Object referent = source.get();
+            return other instanceof Key key && referent != null && key.source.get() == referent && key.view.equals(view);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final LruCache<Key, String> renderings = new LruCache<>(
+            Config.getInt("render.cache.max-entries", 2000), 3600_000);
+
+    private static final Counter REQUESTS = Metrics.REGISTRY.counter(
+            "render_cache_requests_total", "Tool result renderings, served from cache or formatted.", "result");
+
+    private static final Comparator<Alert.Properties> NEWEST_FIRST =
+            Comparator.comparingLong(Renderer::sentMillis).reversed();
+
+    private Renderer() {
+    }
+
+
+    public static String render(Forecast forecast, ForecastView view) {
+        return cached(forecast, view, () -> {
+            List<Forecast.Period> periods = forecast.properties().periods();
+            if (view.periods() > 0 && periods.size() > view.periods()) {
+                periods = periods.subList(0, view.periods());
+            }
+            return view.format() == OutputFormat.JSON
+                    ? toJson("periods", periods, view.fields(), ForecastView.FIELDS::get)
+                    : WeatherService.formatForecast(new Forecast(new Forecast.Props(periods)));
+        });
+    }
+
+
+    public static String render(Alert alert, AlertView view) {
+        return cached(alert, view, () -> renderUncached(alert, view));
+    }
+
+
+    /**
+     * Render alerts built for this call only, without looking them up in the cache or adding them.
+     */
+    public static String renderUncached(Alert alert, AlertView view) {
+        List<Alert.Properties> alerts = new ArrayList<>();
+        for (Alert.Feature feature : alert.features()) {
+            if (view.includes(feature.properties())) {
+                alerts.add(feature.properties());
+            }
+        }
+        // The feed is not guaranteed to be sorted, and the limit keeps the newest alerts
+        alerts.sort(NEWEST_FIRST);
+        if (view.limit() > 0 && alerts.size() > view.limit()) {
+            alerts = alerts.subList(0, view.limit());
+        }
+        return view.format() == OutputFormat.JSON
+                ? toJson("alerts", alerts, view.fields(), AlertView.FIELDS::get)
+                : WeatherService.formatAlerts(new Alert(alerts.stream().map(Alert.Feature::new).toList()));
+    }
+
+
+    private static long sentMillis(Alert.Properties properties) {
+        if (properties.sent() == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return OffsetDateTime.parse(properties.sent()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+
+    private static String cached(Object source, Object view, Supplier<String> renderer) {
+        Key key = new Key(source, view);
+        String rendered = renderings.get(key);
+        if (rendered != null) {
+            REQUESTS.inc("hit");
+            return rendered;
+        }
+        REQUESTS.inc("miss");
+        rendered = renderer.get();
+        renderings.put(key, rendered);
+        return rendered;
+    }
+
+
+    /**
+     * Write {@code {"name":[{field:value,...},...]}}, leaving out null values.
+     */
+    private static <T> String toJson(String name, List<T> items, List<String> fields,
+            Function<String, Function<T, Object>> accessors) {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = Json.MAPPER.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(name);
+            for (T item : items) {
+                generator.writeStartObject();
+                for (String field : fields) {
+                    Object value = accessors.apply(field).apply(item);
+                    if (value instanceof String string) {
+                        generator.writeStringField(field, string);
+                    } else if (value instanceof Integer number) {
+                        generator.writeNumberField(field, number);
+                    } else if (value instanceof Boolean bool) {
+                        generator.writeBooleanField(field, bool);
+                    } else if (value != null) {
+                        generator.writeFieldName(field);
+                        generator.writeObject(value);
+                    }
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+}
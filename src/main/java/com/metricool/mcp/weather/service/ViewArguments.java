@@ -0,0 +1,62 @@
+package com.metricool.mcp.weather.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Parsing of the tool arguments shared by {@link ForecastView} and {@link AlertView}.
+ */
+final class ViewArguments {
+
+    private ViewArguments() {
+    }
+
+
+    /**
+     * @param argument a list of field names, or null for the defaults
+     * @return the selected fields, in the order of {@code known}
+     */
+    static List<String> fields(Object argument, Collection<String> known, List<String> defaults) {
+        if (argument == null) {
+            return defaults;
+        }
+        if (!(argument instanceof Collection<?> requested) || requested.isEmpty()) {
+            throw new IllegalArgumentException("fields must be a non-empty list of " + known);
+        }
+        for (Object field : requested) {
+            if (!known.contains(String.valueOf(field))) {
+                throw new IllegalArgumentException("Unknown field: " + field + ", expected some of " + known);
+            }
+        }
+        List<String> fields = new ArrayList<>();
+        for (String field : known) {
+            if (requested.contains(field)) {
+                fields.add(field);
+            }
+        }
+        return List.copyOf(fields);
+    }
+
+
+    /**
+     * @return the limit, or 0 for none
+     */
+    static int limit(Object argument, String name) {
+        if (argument == null) {
+            return 0;
+        }
+        int limit;
+        try {
+            limit = (int) Double.parseDouble(argument.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number: " + argument);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1: " + argument);
+        }
+        return limit;
+    }
+
+}
@@ -19,30 +19,139 @@ package com.metricool.mcp.weather.service;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.metricool.mcp.weather.alerts.AlertIndex;
+import com.metricool.mcp.weather.alerts.AlertIngestor;
+import com.metricool.mcp.weather.cache.GridCellIndex;
+import com.metricool.mcp.weather.cache.GridPointCache;
+import com.metricool.mcp.weather.cache.LastKnownGood;
+import com.metricool.mcp.weather.cache.ResponseCache;
+import com.metricool.mcp.weather.cache.SnapshotStore;
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.Json;
 import com.metricool.mcp.weather.utils.RestClient;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 
 public class WeatherService {
 
-    private static final String BASE_URL = "https://api.weather.gov";
+    private static final String BASE_URL = Config.get("upstream.url", "https://api.weather.gov");
     private static final String[] HEADERS = new String[] {
         "Accept", "application/geo+json",
         "User-Agent", "WeatherApiClient/1.0 (your@email.com)"
     };
 
+    /**
+     * Upstream endpoint classes, as reported in metrics.
+     */
+    public static final String POINTS_ENDPOINT = "points";
+    public static final String FORECAST_ENDPOINT = "forecast";
+    public static final String ALERTS_ENDPOINT = "alerts";
+    public static final String ALERTS_FEED_ENDPOINT = "alerts-feed";
+
     private final RestClient restClient;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final GridPointCache gridPointCache = new GridPointCache();
+    private static final GridCellIndex gridCellIndex = Config.getBoolean("gridindex.enabled", true) ? new GridCellIndex() : null;
+    private static final LastKnownGood lastKnownGood = new LastKnownGood();
+    private static final SnapshotStore snapshotStore = SnapshotStore.fromConfig(List.of(Points.class, Forecast.class, Alert.class));
+    static {
+        if (snapshotStore != null) {
+            gridPointCache.setSnapshot(snapshotStore);
+            RestClient.getResponseCache().setSnapshot(snapshotStore);
+        }
+    }
+    private volatile AlertIngestor alertIngestor;
+    private final List<Consumer<AlertIndex.Diff>> alertListeners = new ArrayList<>();
+
+    private static final int BATCH_CONCURRENCY = Config.getInt("batch.concurrency", 8);
 
     public WeatherService() {
-        this.restClient = new RestClient();
+        this(new RestClient());
+    }
+
+    /**
+     * A service is thread safe: create one and share it across tool calls.
+     */
+    public WeatherService(RestClient restClient) {
+        this.restClient = restClient;
+    }
+
+
+    /**
+     * Start the background work enabled in the configuration: refreshing popular responses before
+     * they expire ({@code refresh.enabled}), polling the national alerts feed
+     * ({@code alerts.ingest.enabled}) so that alerts are answered from memory, and writing the
+     * grid point cache file ({@code gridcache.file}) and the cache snapshot ({@code snapshot.file}).
+     */
+    public synchronized void start() {
+        gridPointCache.start();
+        if (snapshotStore != null) {
+            snapshotStore.start(gridPointCache, RestClient.getResponseCache());
+        }
+        if (Config.getBoolean("refresh.enabled", true)) {
+            RestClient.getRefreshScheduler().start();
+        }
+        if (alertIngestor == null && (Config.getBoolean("alerts.ingest.enabled", false) || !alertListeners.isEmpty())) {
+            startAlertIngestor();
+        }
+    }
+
+
+    /**
+     * Be told of every change of the active alerts, polling the national alerts feed from now on
+     * if {@code alerts.ingest.enabled} did not already.
+     *
+     * @param listener called on the ingestor thread with the alerts added and removed, and their states
+     */
+    public synchronized void watchAlerts(Consumer<AlertIndex.Diff> listener) {
+        alertListeners.add(listener);
+        if (alertIngestor == null) {
+            startAlertIngestor();
+        } else {
+            alertIngestor.addListener(listener);
+        }
+    }
+
+
+    private void startAlertIngestor() {
+        long interval = Config.getLong("alerts.ingest.interval.seconds", 60) * 1000;
+        long maxStaleness = Config.getLong("alerts.ingest.max-staleness.seconds", 300) * 1000;
+        alertIngestor = new AlertIngestor(
+                () -> restClient.doGet(ALERTS_FEED_ENDPOINT, URI.create(BASE_URL + "/alerts/active"), NwsParser::parseAlerts, HEADERS),
+                interval, maxStaleness);
+        alertListeners.forEach(alertIngestor::addListener);
+        alertIngestor.start();
+    }
+
+
+    /**
+     * Stop the background work, and write the grid point cache file and a last cache snapshot.
+     */
+    public synchronized void stop() {
+        RestClient.getRefreshScheduler().stop();
+        gridPointCache.stop();
+        if (snapshotStore != null) {
+            snapshotStore.stop();
+        }
+        if (alertIngestor != null) {
+            alertIngestor.stop();
+            alertIngestor = null;
+        }
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -81,13 +190,34 @@ public class WeatherService {
         @JsonIgnoreProperties(ignoreUnknown = true)
         public record Properties(@JsonProperty("event") String event, @JsonProperty("areaDesc") String areaDesc,
                 @JsonProperty("severity") String severity, @JsonProperty("description") String description,
-                @JsonProperty("instruction") String instruction) {
+                @JsonProperty("instruction") String instruction,
+                @JsonProperty("id") String id, @JsonProperty("sent") String sent,
+                @JsonProperty("expires") String expires, @JsonProperty("geocode") Geocode geocode) {
+        }
+
+        /**
+         * @param ugc zones the alert applies to, e.g. NYZ072: state or marine area, Z or C, zone or county number
+         */
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public record Geocode(@JsonProperty("UGC") List<String> ugc) {
         }
     }
 
+    public record Location(double latitude, double longitude) {
+    }
+
+    /**
+     * Forecast of one location of a batch: either the rendered forecast, or the error that prevented it.
+     */
+    public record LocationForecast(Location location, String forecast, Throwable error) {
+    }
+
     /**
      * Get forecast for a specific latitude/longitude
      * 
+     * When the upstream is down, the last forecast retrieved for the location is returned instead,
+     * with a note saying how old it is.
+     * 
      * @param latitude  Latitude
      * @param longitude Longitude
      * @return The forecast for the given location
@@ -96,36 +226,277 @@ public class WeatherService {
      * @throws RestClientException if the request fails
      */
     public String getWeatherForecastByLocation(double latitude, double longitude) throws IOException, InterruptedException {
-        String endpoint = String.format(Locale.ENGLISH, "/points/%f,%f", latitude, longitude);
-        
-        URI uri = URI.create(BASE_URL + endpoint);
-        String response = restClient.doGet(uri, HEADERS);
+        return getWeatherForecastByLocation(latitude, longitude, ForecastView.DEFAULT);
+    }
 
-        Points points = objectMapper.readValue(response, Points.class);
 
-        uri = URI.create(points.properties().forecast());
-        response = restClient.doGet(uri, HEADERS);
+    /**
+     * Get the part of the forecast for a specific latitude/longitude selected by a view.
+     * 
+     * @param view output format, fields and number of periods
+     */
+    public String getWeatherForecastByLocation(double latitude, double longitude, ForecastView view) throws IOException, InterruptedException {
+        String key = getLocationKey(latitude, longitude) + " " + view;
+        try {
+            String forecastUrl = getForecastUrl(latitude, longitude);
+            Forecast forecast = restClient.doGet(FORECAST_ENDPOINT, URI.create(forecastUrl), forecastParser(forecastUrl), HEADERS);
 
-        Forecast forecast = objectMapper.readValue(response, Forecast.class);
-        String forecastText = forecast.properties().periods().stream().map(p -> String.format("""
-                %s:
-                Temperature: %s %s
-                Wind: %s %s
-                Forecast: %s
-                """, 
-                p.name(), 
-                p.temperature(), p.temperatureUnit(), 
-                p.windSpeed(), p.windDirection(),
-                p.detailedForecast())
-                ).collect(Collectors.joining());
+            String result = Renderer.render(forecast, view);
+            lastKnownGood.put(FORECAST_ENDPOINT, key, result);
+            return result;
+        } catch (IOException e) {
+            String fallback = lastKnownGood.fallback(FORECAST_ENDPOINT, key, e);
+            if (fallback == null) {
+                throw e;
+            }
+            return fallback;
+        }
+    }
+
+
+    /**
+     * Non-blocking variant of {@link #getWeatherForecastByLocation(double, double)}.
+     * 
+     * @param latitude  Latitude
+     * @param longitude Longitude
+     * @return A future completed with the forecast for the given location
+     */
+    public CompletableFuture<String> getWeatherForecastByLocationAsync(double latitude, double longitude) {
+        return getWeatherForecastByLocationAsync(latitude, longitude, ForecastView.DEFAULT);
+    }
+
+
+    /**
+     * Non-blocking variant of {@link #getWeatherForecastByLocation(double, double, ForecastView)}.
+     */
+    public CompletableFuture<String> getWeatherForecastByLocationAsync(double latitude, double longitude, ForecastView view) {
+        return withLastKnownGood(FORECAST_ENDPOINT, getLocationKey(latitude, longitude) + " " + view, getForecastUrlAsync(latitude, longitude)
+                .thenCompose(forecastUrl -> restClient.doGetAsync(FORECAST_ENDPOINT, URI.create(forecastUrl), forecastParser(forecastUrl), HEADERS))
+                .thenApply(forecast -> Renderer.render(forecast, view)));
+    }
+
+
+    /**
+     * Remember a successful answer, or replace a failure by the last known good answer if there is one.
+     */
+    private static CompletableFuture<String> withLastKnownGood(String kind, String key, CompletableFuture<String> future) {
+        return future.handle((result, error) -> {
+            if (error == null) {
+                lastKnownGood.put(kind, key, result);
+                return result;
+            }
+            String fallback = lastKnownGood.fallback(kind, key, error);
+            if (fallback == null) {
+                throw error instanceof CompletionException completionException ? completionException : new CompletionException(error);
+            }
+            return fallback;
+        });
+    }
+
+
+    private static LocationForecast withLastKnownGood(LocationForecast forecast) {
+        String key = getLocationKey(forecast.location().latitude(), forecast.location().longitude()) + " " + ForecastView.DEFAULT;
+        if (forecast.error() == null) {
+            lastKnownGood.put(FORECAST_ENDPOINT, key, forecast.forecast());
+            return forecast;
+        }
+        String fallback = lastKnownGood.fallback(FORECAST_ENDPOINT, key, forecast.error());
+        return fallback == null ? forecast : new LocationForecast(forecast.location(), fallback, null);
+    }
+
+
+    /**
+     * Last known good key of a location: its snapped coordinates, like the grid point cache.
+     */
+    private static String getLocationKey(double latitude, double longitude) {
+        return String.format(Locale.ENGLISH, "%.4f,%.4f", gridPointCache.snap(latitude), gridPointCache.snap(longitude));
+    }
+
+
+    /**
+     * Get the forecasts of many locations at once.
+     *
+     * Locations are resolved to their gridpoint forecast URL, then each distinct forecast is fetched
+     * once, at most {@code batch.concurrency} requests at a time. Locations in the same grid cell
+     * share the request. A failure only affects the locations it belongs to, which get their last
+     * known good forecast if the upstream is down.
+     * 
+     * @param locations Latitude/longitude pairs
+     * @return A future completed with one result per location, in the same order
+     */
+    public CompletableFuture<List<LocationForecast>> getWeatherForecastByLocationsAsync(List<Location> locations) {
+        record Resolved(Location location, String forecastUrl, Throwable error) {
+        }
 
-        return forecastText;
+        // Step 1: resolve every location, concurrent lookups of the same grid cell are coalesced
+        return Flux.fromIterable(locations)
+                .flatMapSequential(location -> Mono.fromFuture(() -> getForecastUrlAsync(location.latitude(), location.longitude()))
+                        .map(url -> new Resolved(location, url, null))
+                        .onErrorResume(e -> Mono.just(new Resolved(location, null, e))), BATCH_CONCURRENCY)
+                .collectList()
+                // Step 2: fetch each distinct forecast once
+                .flatMap(resolved -> Flux.fromIterable(resolved)
+                        .filter(r -> r.error() == null)
+                        .map(Resolved::forecastUrl)
+                        .distinct()
+                        .flatMap(this::fetchForecast, BATCH_CONCURRENCY)
+                        .collectMap(Fetched::forecastUrl)
+                        // Step 3: one result per location, in order
+                        .map(byUrl -> resolved.stream()
+                                .map(r -> r.error() != null
+                                        ? new LocationForecast(r.location(), null, r.error())
+                                        : byUrl.get(r.forecastUrl()).at(r.location()))
+                                .map(WeatherService::withLastKnownGood)
+                                .toList()))
+                .toFuture();
+    }
+
+
+    private record Fetched(String forecastUrl, String forecast, Throwable error) {
+
+        LocationForecast at(Location location) {
+            return new LocationForecast(location, forecast, error);
+        }
+    }
+
+
+    private Mono<Fetched> fetchForecast(String forecastUrl) {
+        return Mono.fromFuture(() -> restClient.doGetAsync(FORECAST_ENDPOINT, URI.create(forecastUrl), forecastParser(forecastUrl), HEADERS))
+                .map(forecast -> new Fetched(forecastUrl, Renderer.render(forecast, ForecastView.DEFAULT), null))
+                .onErrorResume(e -> Mono.just(new Fetched(forecastUrl, null, e)));
+    }
+
+
+    /**
+     * Blocking variant of {@link #getWeatherForecastByLocationsAsync(List)}.
+     */
+    public List<LocationForecast> getWeatherForecastByLocations(List<Location> locations) throws IOException, InterruptedException {
+        try {
+            return getWeatherForecastByLocationsAsync(locations).get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+
+    /**
+     * Resolve a latitude/longitude to its gridpoint forecast URL, going upstream only when it is
+     * neither cached nor inside a known grid cell.
+     */
+    private String getForecastUrl(double latitude, double longitude) throws IOException, InterruptedException {
+        String forecastUrl = getKnownForecastUrl(latitude, longitude);
+        if (forecastUrl != null) {
+            return forecastUrl;
+        }
+
+        Points points = restClient.doGet(POINTS_ENDPOINT, getPointsUri(latitude, longitude), NwsParser::parsePoints, HEADERS);
+        forecastUrl = points.properties().forecast();
+        gridPointCache.put(latitude, longitude, forecastUrl);
+
+        return forecastUrl;
+    }
+
+
+    private CompletableFuture<String> getForecastUrlAsync(double latitude, double longitude) {
+        String forecastUrl = getKnownForecastUrl(latitude, longitude);
+        if (forecastUrl != null) {
+            return CompletableFuture.completedFuture(forecastUrl);
+        }
+
+        return restClient.doGetAsync(POINTS_ENDPOINT, getPointsUri(latitude, longitude), NwsParser::parsePoints, HEADERS).thenApply(points -> {
+            String url = points.properties().forecast();
+            gridPointCache.put(latitude, longitude, url);
+            return url;
+        });
+    }
+
+
+    private String getKnownForecastUrl(double latitude, double longitude) {
+        String forecastUrl = gridPointCache.get(latitude, longitude);
+        if (forecastUrl == null && gridCellIndex != null) {
+            forecastUrl = gridCellIndex.find(latitude, longitude);
+        }
+        return forecastUrl;
+    }
+
+
+    /**
+     * Parser of a forecast response, which also adds the grid cell of the forecast to the spatial index.
+     */
+    private static RestClient.BodyParser<Forecast> forecastParser(String forecastUrl) {
+        if (gridCellIndex == null) {
+            return NwsParser::parseForecast;
+        }
+        return body -> NwsParser.parseForecast(body, cell -> gridCellIndex.add(cell, forecastUrl));
+    }
+
+
+    /**
+     * Fetch an upstream response for a cluster peer, through the cache of this replica.
+     *
+     * @param endpoint one of the endpoint classes, which picks the parser
+     * @param path     the path and query of the upstream URI
+     * @return the cache entry of the response
+     * @throws IllegalArgumentException if the endpoint or path is not one of the upstream
+     */
+    public ResponseCache.Entry fetchForPeer(String endpoint, String path) throws IOException, InterruptedException {
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Not an upstream path: " + path);
+        }
+        URI uri = URI.create(BASE_URL + path);
+        RestClient.BodyParser<?> parser = switch (endpoint) {
+            case POINTS_ENDPOINT -> NwsParser::parsePoints;
+            case FORECAST_ENDPOINT -> forecastParser(uri.toString());
+            case ALERTS_ENDPOINT, ALERTS_FEED_ENDPOINT -> NwsParser::parseAlerts;
+            default -> throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+        };
+        return restClient.doGetForPeer(endpoint, uri, parser, HEADERS);
+    }
+
+
+    /**
+     * Write a response fetched for a cluster peer as JSON its parser reads back. A forecast also gets
+     * the GeoJSON geometry of its grid cell, if known, so the peer adds the cell to its own index.
+     *
+     * @param path the path and query of the upstream URI, as given to {@link #fetchForPeer(String, String)}
+     */
+    public byte[] toPeerBody(String endpoint, String path, Object value) throws IOException {
+        double[] cell = FORECAST_ENDPOINT.equals(endpoint) && gridCellIndex != null
+                ? gridCellIndex.polygon(URI.create(BASE_URL + path).toString()) : null;
+        return toPeerBody(value, cell);
+    }
+
+
+    /**
+     * @param cell the outline of the grid cell of a forecast, or null
+     */
+    static byte[] toPeerBody(Object value, double[] cell) throws IOException {
+        if (cell == null) {
+            return Json.MAPPER.writeValueAsBytes(value);
+        }
+        ObjectNode body = Json.MAPPER.valueToTree(value);
+        ArrayNode ring = body.putObject("geometry").put("type", "Polygon").putArray("coordinates").addArray();
+        for (int i = 0; i < cell.length; i += 2) {
+            ring.addArray().add(cell[i]).add(cell[i + 1]);
+        }
+        return Json.MAPPER.writeValueAsBytes(body);
+    }
+
+
+    private URI getPointsUri(double latitude, double longitude) {
+        // Query the snapped location, so the cached entry is exact for every point that shares its key
+        String endpoint = String.format(Locale.ENGLISH, "/points/%.4f,%.4f",
+                gridPointCache.snap(latitude), gridPointCache.snap(longitude));
+
+        return URI.create(BASE_URL + endpoint);
     }
 
     
     /**
      * Get alerts for a specific area
      * 
+     * Like forecasts, the last alerts retrieved for the area are returned with a note when the upstream is down.
+     * 
      * @param state Area code. Two-letter US state code (e.g. CA, NY)
      * @return Human readable alert information
      * @throws InterruptedException 
@@ -133,13 +504,107 @@ public class WeatherService {
      * @throws RestClientException if the request fails
      */
     public String getAlerts(String state) throws IOException, InterruptedException {
+        return getAlerts(state, AlertView.DEFAULT);
+    }
+
+
+    /**
+     * Get the alerts for a specific area selected by a view.
+     * 
+     * @param view output format, fields, number of alerts and minimum severity
+     */
+    public String getAlerts(String state, AlertView view) throws IOException, InterruptedException {
+        AlertIngestor ingestor = alertIngestor;
+        if (ingestor != null && ingestor.isFresh()) {
+            return Renderer.renderUncached(ingestor.getIndex().byState(state), view);
+        }
+
+        String key = state.toUpperCase(Locale.ENGLISH) + " " + view;
+        try {
+            Alert alert = restClient.doGet(ALERTS_ENDPOINT, getAlertsUri(state), NwsParser::parseAlerts, HEADERS);
+
+            String result = Renderer.render(alert, view);
+            lastKnownGood.put(ALERTS_ENDPOINT, key, result);
+            return result;
+        } catch (IOException e) {
+            String fallback = lastKnownGood.fallback(ALERTS_ENDPOINT, key, e);
+            if (fallback == null) {
+                throw e;
+            }
+            return fallback;
+        }
+    }
+
+
+    /**
+     * Non-blocking variant of {@link #getAlerts(String)}.
+     * 
+     * @param state Area code. Two-letter US state code (e.g. CA, NY)
+     * @return A future completed with human readable alert information
+     */
+    public CompletableFuture<String> getAlertsAsync(String state) {
+        return getAlertsAsync(state, AlertView.DEFAULT);
+    }
+
+
+    /**
+     * Non-blocking variant of {@link #getAlerts(String, AlertView)}.
+     */
+    public CompletableFuture<String> getAlertsAsync(String state, AlertView view) {
+        AlertIngestor ingestor = alertIngestor;
+        if (ingestor != null && ingestor.isFresh()) {
+            return CompletableFuture.completedFuture(Renderer.renderUncached(ingestor.getIndex().byState(state), view));
+        }
+
+        return withLastKnownGood(ALERTS_ENDPOINT, state.toUpperCase(Locale.ENGLISH) + " " + view,
+                restClient.doGetAsync(ALERTS_ENDPOINT, getAlertsUri(state), NwsParser::parseAlerts, HEADERS)
+                        .thenApply(alert -> Renderer.render(alert, view)));
+    }
+
+
+    private URI getAlertsUri(String state) {
         String endpoint = String.format(Locale.ENGLISH, "/alerts/active/area/%s", state);
 
-        URI uri = URI.create(BASE_URL + endpoint);
-        String response = restClient.doGet(uri, HEADERS);
+        return URI.create(BASE_URL + endpoint);
+    }
 
-        Alert alert = objectMapper.readValue(response, Alert.class);
-        String alertText = alert.features().stream().map(f -> String.format("""
+
+    /**
+     * Render forecast periods as human readable text.
+     */
+    public static String formatForecast(Forecast forecast) {
+        return forecast.properties().periods().stream().map(p -> String.format("""
+                %s:
+                Temperature: %s %s
+                Wind: %s %s
+                Forecast: %s
+                """, 
+                p.name(), 
+                p.temperature(), p.temperatureUnit(), 
+                p.windSpeed(), p.windDirection(),
+                p.detailedForecast())
+                ).collect(Collectors.joining());
+    }
+
+
+    /**
+     * Render the forecasts of a batch as human readable text, one section per location.
+     */
+    public static String formatLocationForecasts(List<LocationForecast> forecasts) {
+        return forecasts.stream().map(f -> String.format(Locale.ENGLISH, """
+                Location: %s, %s
+                %s""",
+                f.location().latitude(), f.location().longitude(),
+                f.error() != null ? "Error: " + f.error() + "\n" : f.forecast())
+                ).collect(Collectors.joining("\n"));
+    }
+
+
+    /**
+     * Render alerts as human readable text.
+     */
+    public static String formatAlerts(Alert alert) {
+        return alert.features().stream().map(f -> String.format("""
                 Event: %s
                 Area: %s
                 Severity: %s
@@ -152,10 +617,9 @@ public class WeatherService {
                 f.properties.description(), 
                 f.properties.instruction())
                 ).collect(Collectors.joining("\n"));
-        
-        return alertText;
     }
 
+
     public static void main(String[] args) throws IOException, InterruptedException {
         WeatherService client = new WeatherService();
         System.out.println(client.getWeatherForecastByLocation(47.6062, -122.3321));
@@ -2,55 +2,99 @@ package com.metricool.mcp.weather.tools;
 
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.List;
 
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.service.AlertView;
 import com.metricool.mcp.weather.service.WeatherService;
 import com.metricool.mcp.weather.utils.Utils;
 
 
 public final class GetAlertsTool {
+
+    private static final String NAME = "get_alerts";
    
 	/**
 	 * Get alerts for a specific area
 	 * 
      * Tool Arguments:
 	 * code state Area code. Two-letter US state code (e.g. CA, NY)
+	 * format text (default) or json, compact JSON with only the selected fields
+	 * fields alert fields included in json
+	 * limit maximum number of alerts, newest first
+	 * minSeverity lowest severity included (Minor, Moderate, Severe, Extreme)
 	 *
      * Tool Return:
-     * (string): Human readable alert information.
+     * (string): Human readable alert information, or JSON.
      * 
+     * @param ws the service shared by all calls of the tool
      * @return {@link McpServerFeatures.SyncToolSpecification}
 	 * @throws IOException if something fails
      */
-    public static McpServerFeatures.SyncToolSpecification getAlerts() throws IOException {
-        // Step 1: Load the JSON schema for the tool input arguments.
-        final String schema = Utils.readResourceAsString("schema/get-alerts-json-schema.json");
-
-        // Step 2: Create a tool with name, description, and JSON schema.
-        McpSchema.Tool tool = new McpSchema.Tool("get_alerts", "Get weather alerts for a specific area.", schema);
+    public static McpServerFeatures.SyncToolSpecification getAlerts(WeatherService ws) throws IOException {
+        // Step 1 and 2: Create the tool with its JSON schema.
+        McpSchema.Tool tool = tool();
 
         // Step 3: Create a tool specification with the tool and the call function.
         return new McpServerFeatures.SyncToolSpecification(tool, (exchange, args) -> {
             final String code = args.get("code").toString();
-            
-            WeatherService ws = new WeatherService();
+
 
             boolean isError = false;
             String result = "";
            
             
+            Exception error = null;
+            long start = System.nanoTime();
             try {
-            	result = ws.getAlerts(code);
+            	result = ws.getAlerts(code, AlertView.fromArguments(args));
             } catch (Exception e) {
+                error = e;
                 isError = true;
                 result = e + ": " + e.getMessage();
             }
+            Metrics.recordToolCall(NAME, start, error);
 
             McpSchema.Content content = new McpSchema.TextContent(result);
             return new McpSchema.CallToolResult(List.of(content), isError);
         });
     }
-}
 
+
+	/**
+	 * Non-blocking variant of {@link #getAlerts(WeatherService)}, for an async MCP server.
+     * 
+     * @param ws the service shared by all calls of the tool
+     * @return {@link McpServerFeatures.AsyncToolSpecification}
+	 * @throws IOException if something fails
+     */
+    public static McpServerFeatures.AsyncToolSpecification getAlertsAsync(WeatherService ws) throws IOException {
+        // Step 1 and 2: Create the tool with its JSON schema.
+        McpSchema.Tool tool = tool();
+
+        // Step 3: Create a tool specification with the tool and the call function.
+        return new McpServerFeatures.AsyncToolSpecification(tool, (exchange, args) -> {
+            final String code = args.get("code").toString();
+
+            long start = System.nanoTime();
+            return Mono.fromFuture(() -> ws.getAlertsAsync(code, AlertView.fromArguments(args)))
+                    .doOnSuccess(result -> Metrics.recordToolCall(NAME, start, null))
+                    .doOnError(e -> Metrics.recordToolCall(NAME, start, e))
+                    .map(result -> new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(result)), false))
+                    .onErrorResume(e -> Mono.just(new McpSchema.CallToolResult(
+                            List.of(new McpSchema.TextContent(e + ": " + e.getMessage())), true)));
+        });
+    }
+
+
+    private static McpSchema.Tool tool() throws IOException {
+        // Step 1: Load the JSON schema for the tool input arguments.
+        final String schema = Utils.readResourceAsString("schema/get-alerts-json-schema.json");
+
+        // Step 2: Create a tool with name, description, and JSON schema.
+        return new McpSchema.Tool(NAME, "Get weather alerts for a specific area.", schema);
+    }
+}
@@ -2,15 +2,20 @@ package com.metricool.mcp.weather.tools;
 
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.List;
 
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.service.ForecastView;
 import com.metricool.mcp.weather.service.WeatherService;
 import com.metricool.mcp.weather.utils.Utils;
 
 
 public final class GetWeatherForecastByLocationTool {
+
+    private static final String NAME = "get_weather_forecast_by_location";
    
 	/**
 	 * Get weather forecast for a location
@@ -18,41 +23,79 @@ public final class GetWeatherForecastByLocationTool {
      * Tool Arguments:
 	 * latitude
 	 * longitude
+	 * format text (default) or json, compact JSON with only the selected fields
+	 * fields period fields included in json
+	 * periods maximum number of periods, from the next one
 	 *
      * Tool Return:
-     * (string): Human readable information.
+     * (string): Human readable information, or JSON.
      * 
+     * @param ws the service shared by all calls of the tool
      * @return {@link McpServerFeatures.SyncToolSpecification}
 	 * @throws IOException if something fails
      */
-    public static McpServerFeatures.SyncToolSpecification getWeatherForecastByLocation() throws IOException {
-        // Step 1: Load the JSON schema for the tool input arguments.
-        final String schema = Utils.readResourceAsString("schema/get-weather-forecast-by-location-json-schema.json");
-
-        // Step 2: Create a tool with name, description, and JSON schema.
-        McpSchema.Tool tool = new McpSchema.Tool("get_weather_forecast_by_location", "Get weather forecast for latitude/longitude inputs.", schema);
+    public static McpServerFeatures.SyncToolSpecification getWeatherForecastByLocation(WeatherService ws) throws IOException {
+        // Step 1 and 2: Create the tool with its JSON schema.
+        McpSchema.Tool tool = tool();
 
         // Step 3: Create a tool specification with the tool and the call function.
         return new McpServerFeatures.SyncToolSpecification(tool, (exchange, args) -> {
             final Double latitude = Double.parseDouble(args.get("latitude").toString());
             final Double longitude = Double.parseDouble(args.get("longitude").toString());
-            
-            WeatherService ws = new WeatherService();
 
             boolean isError = false;
             String result = "";
            
             
+            Exception error = null;
+            long start = System.nanoTime();
             try {
-            	result = ws.getWeatherForecastByLocation(latitude, longitude);
+            	result = ws.getWeatherForecastByLocation(latitude, longitude, ForecastView.fromArguments(args));
             } catch (Exception e) {
+                error = e;
                 isError = true;
                 result = e + ": " + e.getMessage();
             }
+            Metrics.recordToolCall(NAME, start, error);
 
             McpSchema.Content content = new McpSchema.TextContent(result);
             return new McpSchema.CallToolResult(List.of(content), isError);
         });
     }
-}
 
+
+	/**
+	 * Non-blocking variant of {@link #getWeatherForecastByLocation(WeatherService)}, for an async MCP server.
+     * 
+     * @param ws the service shared by all calls of the tool
+     * @return {@link McpServerFeatures.AsyncToolSpecification}
+	 * @throws IOException if something fails
+     */
+    public static McpServerFeatures.AsyncToolSpecification getWeatherForecastByLocationAsync(WeatherService ws) throws IOException {
+        // Step 1 and 2: Create the tool with its JSON schema.
+        McpSchema.Tool tool = tool();
+
+        // Step 3: Create a tool specification with the tool and the call function.
+        return new McpServerFeatures.AsyncToolSpecification(tool, (exchange, args) -> {
+            final Double latitude = Double.parseDouble(args.get("latitude").toString());
+            final Double longitude = Double.parseDouble(args.get("longitude").toString());
+
+            long start = System.nanoTime();
+            return Mono.fromFuture(() -> ws.getWeatherForecastByLocationAsync(latitude, longitude, ForecastView.fromArguments(args)))
+                    .doOnSuccess(result -> Metrics.recordToolCall(NAME, start, null))
+                    .doOnError(e -> Metrics.recordToolCall(NAME, start, e))
+                    .map(result -> new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(result)), false))
+                    .onErrorResume(e -> Mono.just(new McpSchema.CallToolResult(
+                            List.of(new McpSchema.TextContent(e + ": " + e.getMessage())), true)));
+        });
+    }
+
+
+    private static McpSchema.Tool tool() throws IOException {
+        // Step 1: Load the JSON schema for the tool input arguments.
+        final String schema = Utils.readResourceAsString("schema/get-weather-forecast-by-location-json-schema.json");
+
+        // Step 2: Create a tool with name, description, and JSON schema.
+        return new McpSchema.Tool(NAME, "Get weather forecast for latitude/longitude inputs.", schema);
+    }
+}
@@ -0,0 +1,126 @@
+package com.metricool.mcp.weather.tools;
+
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.metricool.mcp.weather.metrics.Metrics;
+import com.metricool.mcp.weather.service.WeatherService;
+import com.metricool.mcp.weather.service.WeatherService.Location;
+import com.metricool.mcp.weather.service.WeatherService.LocationForecast;
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.Utils;
+
+
+public final class GetWeatherForecastByLocationsTool {
+
+    private static final String NAME = "get_weather_forecast_by_locations";
+    private static final int MAX_LOCATIONS = Config.getInt("batch.max-locations", 50);
+
+	/**
+	 * Get weather forecast for many locations in one call
+	 *
+     * Tool Arguments:
+	 * locations: array of {latitude, longitude}
+	 *
+     * Tool Return:
+     * (string): Human readable information, one section per location. A location that fails
+     * gets an error in its section; the call is an error only if every location failed.
+     *
+     * @param ws the service shared by all calls of the tool
+     * @return {@link McpServerFeatures.SyncToolSpecification}
+	 * @throws IOException if something fails
+     */
+    public static McpServerFeatures.SyncToolSpecification getWeatherForecastByLocations(WeatherService ws) throws IOException {
+        // Step 1 and 2: Create the tool with its JSON schema.
+        McpSchema.Tool tool = tool();
+
+        // Step 3: Create a tool specification with the tool and the call function.
+        return new McpServerFeatures.SyncToolSpecification(tool, (exchange, args) -> {
+            boolean isError = false;
+            String result = "";
+
+            Exception error = null;
+            long start = System.nanoTime();
+            try {
+                List<LocationForecast> forecasts = ws.getWeatherForecastByLocations(locations(args));
+                isError = allFailed(forecasts);
+                result = WeatherService.formatLocationForecasts(forecasts);
+            } catch (Exception e) {
+                error = e;
+                isError = true;
+                result = e + ": " + e.getMessage();
+            }
+            Metrics.recordToolCall(NAME, start, error);
+
+            McpSchema.Content content = new McpSchema.TextContent(result);
+            return new McpSchema.CallToolResult(List.of(content), isError);
+        });
+    }
+
+
+	/**
+	 * Non-blocking variant of {@link #getWeatherForecastByLocations(WeatherService)}, for an async MCP server.
+     *
+     * @param ws the service shared by all calls of the tool
+     * @return {@link McpServerFeatures.AsyncToolSpecification}
+	 * @throws IOException if something fails
+     */
+    public static McpServerFeatures.AsyncToolSpecification getWeatherForecastByLocationsAsync(WeatherService ws) throws IOException {
+        // Step 1 and 2: Create the tool with its JSON schema.
+        McpSchema.Tool tool = tool();
+
+        // Step 3: Create a tool specification with the tool and the call function.
+        return new McpServerFeatures.AsyncToolSpecification(tool, (exchange, args) -> {
+            long start = System.nanoTime();
+            return Mono.fromCallable(() -> locations(args))
+                    .flatMap(locations -> Mono.fromFuture(() -> ws.getWeatherForecastByLocationsAsync(locations)))
+                    .doOnSuccess(result -> Metrics.recordToolCall(NAME, start, null))
+                    .doOnError(e -> Metrics.recordToolCall(NAME, start, e))
+                    .map(forecasts -> new McpSchema.CallToolResult(
+                            List.of(new McpSchema.TextContent(WeatherService.formatLocationForecasts(forecasts))), allFailed(forecasts)))
+                    .onErrorResume(e -> Mono.just(new McpSchema.CallToolResult(
+                            List.of(new McpSchema.TextContent(e + ": " + e.getMessage())), true)));
+        });
+    }
+
+
+    private static List<Location> locations(Map<String, Object> args) {
+        if (!(args.get("locations") instanceof List<?> items) || items.isEmpty()) {
+            throw new IllegalArgumentException("locations must be a non-empty array");
+        }
+        if (items.size() > MAX_LOCATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_LOCATIONS + " locations per call, got " + items.size());
+        }
+
+        List<Location> locations = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (!(item instanceof Map<?, ?> location) || location.get("latitude") == null || location.get("longitude") == null) {
+                throw new IllegalArgumentException("Each location needs a latitude and a longitude: " + item);
+            }
+            locations.add(new Location(
+                    Double.parseDouble(location.get("latitude").toString()),
+                    Double.parseDouble(location.get("longitude").toString())));
+        }
+        return locations;
+    }
+
+
+    private static boolean allFailed(List<LocationForecast> forecasts) {
+        return forecasts.stream().allMatch(f -> f.error() != null);
+    }
+
+
+    private static McpSchema.Tool tool() throws IOException {
+        // Step 1: Load the JSON schema for the tool input arguments.
+        final String schema = Utils.readResourceAsString("schema/get-weather-forecast-by-locations-json-schema.json");
+
+        // Step 2: Create a tool with name, description, and JSON schema.
+        return new McpSchema.Tool(NAME, "Get weather forecasts for many latitude/longitude locations in one call.", schema);
+    }
+}
@@ -1,8 +1,11 @@
 package com.metricool.mcp.weather.tools;
 
+import io.modelcontextprotocol.server.McpAsyncServer;
 import io.modelcontextprotocol.server.McpSyncServer;
 import java.io.IOException;
 
+import com.metricool.mcp.weather.service.WeatherService;
+
 
 /**
  * A class that defines tools for the MCP server.
@@ -11,14 +14,26 @@ import java.io.IOException;
 public final class McpTools {
    
     /**
-     * Add all tools to the MCP server.
+     * Add all tools to the MCP server, sharing a new {@link WeatherService}.
      *
      * @param server The MCP server to add tools to.
      */
     public static void addAllTo(McpSyncServer server) {
+        addAllTo(server, new WeatherService());
+    }
+
+
+    /**
+     * Add all tools to the MCP server.
+     *
+     * @param server The MCP server to add tools to.
+     * @param ws     The service every tool call goes through.
+     */
+    public static void addAllTo(McpSyncServer server, WeatherService ws) {
         try {
-            server.addTool(GetAlertsTool.getAlerts());
-            server.addTool(GetWeatherForecastByLocationTool.getWeatherForecastByLocation());
+            server.addTool(GetAlertsTool.getAlerts(ws));
+            server.addTool(GetWeatherForecastByLocationTool.getWeatherForecastByLocation(ws));
+            server.addTool(GetWeatherForecastByLocationsTool.getWeatherForecastByLocations(ws));
         } catch (IOException e) {
             // We are in STDIO mode, so logging is unavailable and messages are output to STDERR only
             System.err.println("Error adding tools");
@@ -26,5 +41,33 @@ public final class McpTools {
         }
     }
 
-}
 
+    /**
+     * Add the non-blocking variant of all tools to the async MCP server, sharing a new {@link WeatherService}.
+     *
+     * @param server The MCP server to add tools to.
+     */
+    public static void addAllTo(McpAsyncServer server) {
+        addAllTo(server, new WeatherService());
+    }
+
+
+    /**
+     * Add the non-blocking variant of all tools to the async MCP server.
+     *
+     * @param server The MCP server to add tools to.
+     * @param ws     The service every tool call goes through.
+     */
+    public static void addAllTo(McpAsyncServer server, WeatherService ws) {
+        try {
+            server.addTool(GetAlertsTool.getAlertsAsync(ws)).block();
+            server.addTool(GetWeatherForecastByLocationTool.getWeatherForecastByLocationAsync(ws)).block();
+            server.addTool(GetWeatherForecastByLocationsTool.getWeatherForecastByLocationsAsync(ws)).block();
+        } catch (IOException e) {
+            // We are in STDIO mode, so logging is unavailable and messages are output to STDERR only
+            System.err.println("Error adding tools");
+            e.printStackTrace(System.err);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.metricool.mcp.weather.transport;
+
+import java.util.UUID;
+
+import com.metricool.mcp.weather.cache.LruCache;
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * Sessions held in the memory of this node: requests of a session must reach the node that
+ * initialized it, so behind a load balancer it needs sticky sessions, or one replica.
+ *
+ * Sessions expire after {@code session.ttl.minutes} without requests.
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    private final long ttlMillis;
+    private final LruCache<String, SessionState> sessions;
+
+
+    public InMemorySessionStore() {
+        this(Config.getInt("session.max-entries", 100_000), Config.getLong("session.ttl.minutes", 1440) * 60_000);
+    }
+
+
+    public InMemorySessionStore(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.sessions = new LruCache<>(maxEntries, ttlMillis);
+    }
+
+
+    @Override
+    public String create(SessionState state) {
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, state);
+        return sessionId;
+    }
+
+
+    @Override
+    public SessionState get(String sessionId) {
+        SessionState state = sessions.get(sessionId);
+        if (state != null) {
+            // Expire after inactivity, not after creation
+            sessions.put(sessionId, state, System.currentTimeMillis() + ttlMillis);
+        }
+        return state;
+    }
+
+
+    @Override
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.metricool.mcp.weather.transport;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.modelcontextprotocol.spec.McpSchema;
+
+
+/**
+ * What a stateless transport needs to know about a client between requests: what it
+ * negotiated in its {@code initialize} request.
+ *
+ * @param createdAt epoch milliseconds when the session was initialized
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SessionState(@JsonProperty("protocolVersion") String protocolVersion,
+        @JsonProperty("capabilities") McpSchema.ClientCapabilities capabilities,
+        @JsonProperty("clientInfo") McpSchema.Implementation clientInfo,
+        @JsonProperty("createdAt") long createdAt) {
+}
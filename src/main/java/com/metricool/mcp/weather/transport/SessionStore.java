@@ -0,0 +1,46 @@
+package com.metricool.mcp.weather.transport;
+
+import java.util.Locale;
+
+import com.metricool.mcp.weather.utils.Config;
+
+
+/**
+ * Where the streamable HTTP transport keeps its sessions, selected with {@code session.store}.
+ *
+ * A session is created by an {@code initialize} request and identified by the {@code Mcp-Session-Id}
+ * header of the following requests. Any replica that can resolve the id can serve the request.
+ */
+public interface SessionStore {
+
+    /**
+     * @return the id of a new session
+     */
+    String create(SessionState state);
+
+
+    /**
+     * @return the state of a session, or null if it is unknown or expired
+     */
+    SessionState get(String sessionId);
+
+
+    /**
+     * End a session, when the client deletes it.
+     */
+    void remove(String sessionId);
+
+
+    /**
+     * @return the store configured with {@code session.store}: {@code memory} (default) or {@code signed}
+     */
+    static SessionStore fromConfig() {
+        String store = Config.get("session.store", "memory").toLowerCase(Locale.ENGLISH);
+        return switch (store) {
+            case "memory" -> new InMemorySessionStore();
+            case "signed" -> new SignedSessionStore();
+            default -> throw new IllegalArgumentException("Unknown session.store: " + store);
+        };
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.metricool.mcp.weather.transport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.Json;
+
+
+/**
+ * Sessions held by the clients: the session id is the session state itself, signed with
+ * HMAC-SHA256. Any replica sharing the {@code session.secret} can serve any request, without
+ * sticky sessions or a shared database.
+ *
+ * Sessions expire {@code session.ttl.minutes} after they were created, and cannot be revoked
+ * before: {@link #remove(String)} does nothing.
+ */
+public class SignedSessionStore implements SessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignedSessionStore.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final ObjectWriter writer = Json.MAPPER.writerFor(SessionState.class);
+    private final ObjectReader reader = Json.MAPPER.readerFor(SessionState.class);
+
+
+    public SignedSessionStore() {
+        this(secretFromConfig(), Config.getLong("session.ttl.minutes", 1440) * 60_000);
+    }
+
+
+    public SignedSessionStore(byte[] secret, long ttlMillis) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlMillis = ttlMillis;
+    }
+
+
+    private static byte[] secretFromConfig() {
+        String secret = Config.get("session.secret", "");
+        if (!secret.isEmpty()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        logger.warn("No session.secret configured: sessions are only valid on this node until it restarts");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+
+
+    @Override
+    public String create(SessionState state) {
+        try {
+            String payload = ENCODER.encodeToString(writer.writeValueAsBytes(state));
+            return payload + "." + ENCODER.encodeToString(sign(payload));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize session " + state, e);
+        }
+    }
+
+
+    @Override
+    public SessionState get(String sessionId) {
+        int dot = sessionId.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String payload = sessionId.substring(0, dot);
+        try {
+            byte[] signature = DECODER.decode(sessionId.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                return null;
+            }
+            SessionState state = reader.readValue(DECODER.decode(payload));
+            return state.createdAt() + ttlMillis < System.currentTimeMillis() ? null : state;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+
+    @Override
+    public void remove(String sessionId) {
+        // The client holds the session, it simply stops sending its id
+    }
+
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+}
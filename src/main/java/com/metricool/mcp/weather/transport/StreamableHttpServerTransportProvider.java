@@ -0,0 +1,279 @@
+package com.metricool.mcp.weather.transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Metrics;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Streamable HTTP transport without server-side connections: every JSON-RPC message is a POST
+ * answered by a plain JSON response, so consecutive requests of a client can reach any replica.
+ *
+ * The {@code initialize} request creates a session in the {@link SessionStore} and returns its
+ * id in the {@code Mcp-Session-Id} header, which the client sends with every following request.
+ * Each request is then handled by a short-lived {@link McpServerSession} rebuilt from the stored
+ * state, instead of a session bound to a long-lived SSE stream on one node.
+ *
+ * There is no stream from the server to the client: GET is not allowed, server notifications are
+ * dropped, and server requests (sampling, roots) fail. The weather tools need neither.
+ */
+public class StreamableHttpServerTransportProvider extends HttpServlet implements McpServerTransportProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamableHttpServerTransportProvider.class);
+
+    public static final String SESSION_ID_HEADER = "Mcp-Session-Id";
+    private static final String APPLICATION_JSON = "application/json";
+
+    private static final Counter SESSIONS = Metrics.REGISTRY.counter("mcp_sessions_total",
+            "Sessions initialized on this node.");
+    private static final Counter REJECTED = Metrics.REGISTRY.counter("mcp_requests_rejected_total",
+            "Streamable HTTP requests rejected before reaching the server, by reason.", "reason");
+
+    private static final McpSchema.JSONRPCNotification INITIALIZED = new McpSchema.JSONRPCNotification(
+            McpSchema.JSONRPC_VERSION, McpSchema.METHOD_NOTIFICATION_INITIALIZED, null);
+
+    private final transient ObjectMapper objectMapper;
+    private final transient SessionStore sessionStore;
+    private transient volatile McpServerSession.Factory sessionFactory;
+    private volatile boolean closing;
+
+
+    public StreamableHttpServerTransportProvider(ObjectMapper objectMapper, SessionStore sessionStore) {
+        this.objectMapper = objectMapper;
+        this.sessionStore = sessionStore;
+    }
+
+
+    @Override
+    public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+
+    @Override
+    public Mono<Void> notifyClients(String method, Object params) {
+        logger.debug("No client stream to send {} to", method);
+        return Mono.empty();
+    }
+
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        closing = true;
+        return Mono.empty();
+    }
+
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("Allow", "POST, DELETE");
+        response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+    }
+
+
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String sessionId = request.getHeader(SESSION_ID_HEADER);
+        if (sessionId == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        sessionStore.remove(sessionId);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (closing) {
+            REJECTED.inc("closing");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        boolean batch;
+        List<McpSchema.JSONRPCMessage> messages = new ArrayList<>();
+        try {
+            JsonNode body = objectMapper.readTree(request.getInputStream());
+            batch = body.isArray();
+            for (JsonNode node : batch ? body : List.of(body)) {
+                messages.add(toMessage(node));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            reject(response, HttpServletResponse.SC_BAD_REQUEST, "invalid", McpSchema.ErrorCodes.PARSE_ERROR, e.getMessage());
+            return;
+        }
+
+        McpSchema.InitializeRequest initializeRequest = null;
+        SessionState state = null;
+        if (messages.size() == 1 && messages.get(0) instanceof McpSchema.JSONRPCRequest r
+                && McpSchema.METHOD_INITIALIZE.equals(r.method())) {
+            try {
+                initializeRequest = objectMapper.convertValue(r.params(), McpSchema.InitializeRequest.class);
+            } catch (IllegalArgumentException e) {
+                reject(response, HttpServletResponse.SC_BAD_REQUEST, "invalid", McpSchema.ErrorCodes.INVALID_PARAMS, e.getMessage());
+                return;
+            }
+            if (initializeRequest == null) {
+                reject(response, HttpServletResponse.SC_BAD_REQUEST, "invalid", McpSchema.ErrorCodes.INVALID_PARAMS,
+                        "Missing initialize params");
+                return;
+            }
+        } else {
+            String sessionId = request.getHeader(SESSION_ID_HEADER);
+            if (sessionId == null) {
+                reject(response, HttpServletResponse.SC_BAD_REQUEST, "no-session", McpSchema.ErrorCodes.INVALID_REQUEST,
+                        SESSION_ID_HEADER + " header missing");
+                return;
+            }
+            state = sessionStore.get(sessionId);
+            if (state == null) {
+                // The client must initialize a new session
+                reject(response, HttpServletResponse.SC_NOT_FOUND, "unknown-session", McpSchema.ErrorCodes.INVALID_REQUEST,
+                        "Session not found: " + sessionId);
+                return;
+            }
+        }
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        McpSchema.InitializeRequest initialize = initializeRequest;
+        SessionState session = state;
+        Flux.fromIterable(messages)
+                .concatMap(message -> handle(session, message))
+                .collectList()
+                .subscribe(responses -> {
+                    try {
+                        HttpServletResponse httpResponse = (HttpServletResponse) async.getResponse();
+                        if (initialize != null && responses.size() == 1 && responses.get(0).error() == null) {
+                            httpResponse.setHeader(SESSION_ID_HEADER, sessionStore.create(new SessionState(
+                                    initialize.protocolVersion(), initialize.capabilities(), initialize.clientInfo(),
+                                    System.currentTimeMillis())));
+                            SESSIONS.inc();
+                        }
+                        if (responses.isEmpty()) {
+                            httpResponse.setStatus(HttpServletResponse.SC_ACCEPTED);
+                        } else {
+                            write(httpResponse, HttpServletResponse.SC_OK, batch ? responses : responses.get(0));
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Failed to send response: {}", e.getMessage());
+                    } finally {
+                        async.complete();
+                    }
+                }, error -> {
+                    logger.error("Error processing message: {}", error.getMessage());
+                    try {
+                        reject((HttpServletResponse) async.getResponse(), HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                                "error", McpSchema.ErrorCodes.INTERNAL_ERROR, error.getMessage());
+                    } catch (IOException e) {
+                        logger.debug("Failed to send error response: {}", e.getMessage());
+                    } finally {
+                        async.complete();
+                    }
+                });
+    }
+
+
+    /**
+     * Handle one message in a session rebuilt for it.
+     *
+     * @return the response, or nothing for notifications and responses
+     */
+    private Mono<McpSchema.JSONRPCResponse> handle(SessionState state, McpSchema.JSONRPCMessage message) {
+        RequestTransport transport = new RequestTransport();
+        McpServerSession session = sessionFactory.create(transport);
+        Mono<Void> ready = Mono.empty();
+        if (state != null) {
+            session.init(state.capabilities(), state.clientInfo());
+            ready = session.handle(INITIALIZED);
+        }
+        return ready.then(session.handle(message))
+                .then(Mono.fromSupplier(() -> transport.response.orElse(null)));
+    }
+
+
+    private McpSchema.JSONRPCMessage toMessage(JsonNode node) {
+        if (node.has("method") && node.has("id")) {
+            return objectMapper.convertValue(node, McpSchema.JSONRPCRequest.class);
+        } else if (node.has("method")) {
+            return objectMapper.convertValue(node, McpSchema.JSONRPCNotification.class);
+        } else if (node.has("result") || node.has("error")) {
+            return objectMapper.convertValue(node, McpSchema.JSONRPCResponse.class);
+        }
+        throw new IllegalArgumentException("Not a JSON-RPC message: " + node);
+    }
+
+
+    private void reject(HttpServletResponse response, int status, String reason, int code, String message) throws IOException {
+        REJECTED.inc(reason);
+        write(response, status, new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, null, null,
+                new McpSchema.JSONRPCResponse.JSONRPCError(code, message, null)));
+    }
+
+
+    private void write(HttpServletResponse response, int status, Object body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(APPLICATION_JSON);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+
+    /**
+     * Transport of a single request: keeps the response of the session, and has nowhere to send
+     * anything else.
+     */
+    private class RequestTransport implements McpServerTransport {
+
+        private volatile Optional<McpSchema.JSONRPCResponse> response = Optional.empty();
+
+        @Override
+        public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+            if (message instanceof McpSchema.JSONRPCResponse r) {
+                response = Optional.of(r);
+                return Mono.empty();
+            }
+            if (message instanceof McpSchema.JSONRPCRequest r) {
+                return Mono.error(new UnsupportedOperationException(
+                        "Server requests are not supported by the streamable HTTP transport: " + r.method()));
+            }
+            logger.debug("No client stream to send {} to", message);
+            return Mono.empty();
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+            return objectMapper.convertValue(data, typeRef);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return Mono.empty();
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.metricool.mcp.weather.transport;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Gauge;
+import com.metricool.mcp.weather.metrics.Metrics;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Adds resource subscriptions to the sessions of a transport with a stream to the client (SSE or
+ * STDIO), which the MCP SDK does not handle: {@code resources/subscribe} and
+ * {@code resources/unsubscribe} requests are answered here, before they reach the SDK session, and
+ * {@link #notifyUpdated(String)} sends {@code notifications/resources/updated} to the sessions
+ * subscribed to a resource.
+ *
+ * A session is dropped from every subscription when it closes, or when a notification cannot be
+ * sent to it because its client went away.
+ */
+public class SubscribingTransportProvider implements McpServerTransportProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscribingTransportProvider.class);
+
+    public static final String METHOD_NOTIFICATION_RESOURCES_UPDATED = "notifications/resources/updated";
+
+    private static final Gauge SUBSCRIPTIONS = Metrics.REGISTRY.gauge("mcp_resource_subscriptions",
+            "Resource subscriptions of the open sessions.");
+    private static final Counter NOTIFICATIONS = Metrics.REGISTRY.counter("mcp_resource_notifications_total",
+            "Resource updated notifications, by result.", "result");
+
+    private final McpServerTransportProvider delegate;
+    private final Predicate<String> subscribable;
+    private final Map<String, Set<McpServerSession>> subscribers = new ConcurrentHashMap<>();
+    private volatile Consumer<String> subscribeListener = uri -> { };
+
+
+    /**
+     * @param subscribable the resource URIs that can be subscribed to
+     */
+    public SubscribingTransportProvider(McpServerTransportProvider delegate, Predicate<String> subscribable) {
+        this.delegate = delegate;
+        this.subscribable = subscribable;
+        SUBSCRIPTIONS.bind(this::size);
+    }
+
+
+    /**
+     * Called with the resource URI of every subscription, before it is acknowledged.
+     */
+    public void onSubscribe(Consumer<String> listener) {
+        this.subscribeListener = listener;
+    }
+
+
+    @Override
+    public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+        delegate.setSessionFactory(transport -> new SubscribingSession(sessionFactory.create(transport), transport));
+    }
+
+
+    @Override
+    public Mono<Void> notifyClients(String method, Object params) {
+        return delegate.notifyClients(method, params);
+    }
+
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return delegate.closeGracefully();
+    }
+
+
+    /**
+     * Tell the sessions subscribed to a resource that it changed, without waiting for them.
+     */
+    public void notifyUpdated(String uri) {
+        Set<McpServerSession> sessions = subscribers.get(uri);
+        if (sessions == null) {
+            return;
+        }
+        for (McpServerSession session : sessions) {
+            session.sendNotification(METHOD_NOTIFICATION_RESOURCES_UPDATED, Map.of("uri", uri))
+                    .subscribe(done -> { }, error -> {
+                        NOTIFICATIONS.inc("error");
+                        logger.debug("Dropping the subscriptions of session {}: {}", session.getId(), error.toString());
+                        unsubscribeAll(session);
+                    }, () -> NOTIFICATIONS.inc("sent"));
+        }
+    }
+
+
+    /**
+     * @return the subscriptions of all sessions
+     */
+    public int size() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+
+    private void unsubscribeAll(McpServerSession session) {
+        subscribers.values().forEach(sessions -> sessions.remove(session));
+    }
+
+
+    /**
+     * Session answering the subscription requests itself and passing everything else to the SDK
+     * session.
+     */
+    private class SubscribingSession extends McpServerSession {
+
+        private final McpServerSession session;
+        private final McpServerTransport transport;
+
+        SubscribingSession(McpServerSession session, McpServerTransport transport) {
+            super(session.getId(), Duration.ZERO, transport, null, null, Map.of(), Map.of());
+            this.session = session;
+            this.transport = transport;
+        }
+
+        @Override
+        public String getId() {
+            return session.getId();
+        }
+
+        @Override
+        public void init(McpSchema.ClientCapabilities clientCapabilities, McpSchema.Implementation clientInfo) {
+            session.init(clientCapabilities, clientInfo);
+        }
+
+        @Override
+        public <T> Mono<T> sendRequest(String method, Object requestParams, TypeReference<T> typeRef) {
+            return session.sendRequest(method, requestParams, typeRef);
+        }
+
+        @Override
+        public Mono<Void> sendNotification(String method, Object params) {
+            return session.sendNotification(method, params);
+        }
+
+        @Override
+        public Mono<Void> handle(McpSchema.JSONRPCMessage message) {
+            if (message instanceof McpSchema.JSONRPCRequest request) {
+                if (McpSchema.METHOD_RESOURCES_SUBSCRIBE.equals(request.method())) {
+                    return Mono.defer(() -> subscribe(request, true));
+                }
+                if (McpSchema.METHOD_RESOURCES_UNSUBSCRIBE.equals(request.method())) {
+                    return Mono.defer(() -> subscribe(request, false));
+                }
+            }
+            return session.handle(message);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            unsubscribeAll(this);
+            return session.closeGracefully();
+        }
+
+        @Override
+        public void close() {
+            unsubscribeAll(this);
+            session.close();
+        }
+
+        private Mono<Void> subscribe(McpSchema.JSONRPCRequest request, boolean subscribe) {
+            McpSchema.SubscribeRequest params = transport.unmarshalFrom(request.params(),
+                    new TypeReference<McpSchema.SubscribeRequest>() { });
+            String uri = params == null ? null : params.uri();
+            if (uri == null || !subscribable.test(uri)) {
+                return transport.sendMessage(new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, request.id(), null,
+                        new McpSchema.JSONRPCResponse.JSONRPCError(McpSchema.ErrorCodes.INVALID_PARAMS,
+                                "Resource cannot be subscribed to: " + uri, null)));
+            }
+            if (subscribe) {
+                subscribeListener.accept(uri);
+                subscribers.computeIfAbsent(uri, key -> ConcurrentHashMap.newKeySet()).add(this);
+            } else {
+                subscribers.getOrDefault(uri, Set.of()).remove(this);
+            }
+            return transport.sendMessage(new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, request.id(), Map.of(), null));
+        }
+    }
+
+}
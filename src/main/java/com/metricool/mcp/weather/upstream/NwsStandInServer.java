@@ -0,0 +1,274 @@
+package com.metricool.mcp.weather.upstream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.Callback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metricool.mcp.weather.utils.Config;
+import com.metricool.mcp.weather.utils.Utils;
+
+
+/**
+ * Embedded stand-in for api.weather.gov, serving the recorded fixtures under {@code fixtures/},
+ * for load tests that must not depend on the network or the NWS rate limits.
+ *
+ * Point the MCP server at it with {@code -Dmcp.weather.upstream.url=http://localhost:8090}.
+ * Every location resolves to its own gridpoint, so caches behave as with the real API, while
+ * every gridpoint answers the same forecast and every state the same alerts.
+ *
+ * Latency, jitter and the error rate are configured with {@code standin.*} keys, see {@link #main}.
+ */
+public class NwsStandInServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NwsStandInServer.class);
+
+    private static final String RECORDED_GRIDPOINT_URL = "https://api.weather.gov/gridpoints/SEW/125,68";
+
+    private final String pointsTemplate;
+    private final byte[] forecast;
+    private final byte[] alerts;
+    private final byte[] gzippedForecast;
+    private final byte[] gzippedAlerts;
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final String cacheControl;
+    private final boolean compression;
+    private volatile double slowRate;
+    private volatile long slowMillis;
+    private volatile double stallRate;
+
+    private final Server server = new Server();
+    private final ServerConnector connector = new ServerConnector(server);
+    private String baseUrl;
+
+
+    /**
+     * @param port          port to listen on, 0 for any free port
+     * @param latencyMillis fixed delay added to every response
+     * @param jitterMillis  random delay between 0 and this value added on top of the latency
+     * @param errorRate     fraction of requests, between 0 and 1, answered with a 503
+     * @param cacheControl  {@code Cache-Control} header of successful responses
+     */
+    public NwsStandInServer(int port, long latencyMillis, long jitterMillis, double errorRate, String cacheControl) throws IOException {
+        this(port, latencyMillis, jitterMillis, errorRate, cacheControl, true);
+    }
+
+
+    /**
+     * @param compression gzip responses to requests accepting it, as api.weather.gov does
+     */
+    public NwsStandInServer(int port, long latencyMillis, long jitterMillis, double errorRate, String cacheControl,
+            boolean compression) throws IOException {
+        this.pointsTemplate = Utils.readResourceAsString("fixtures/points.json");
+        this.forecast = Utils.readResourceAsString("fixtures/forecast.json").getBytes(StandardCharsets.UTF_8);
+        this.alerts = Utils.readResourceAsString("fixtures/alerts-NY.json").getBytes(StandardCharsets.UTF_8);
+        this.gzippedForecast = gzip(forecast);
+        this.gzippedAlerts = gzip(alerts);
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.cacheControl = cacheControl;
+        this.compression = compression;
+
+        connector.setPort(port);
+        server.addConnector(connector);
+        server.setHandler(new Handler.Abstract() {
+            @Override
+            public boolean handle(Request request, Response response, Callback callback) {
+                long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+                if (slowRate > 0 && ThreadLocalRandom.current().nextDouble() < slowRate) {
+                    delay += slowMillis;
+                }
+                if (delay > 0) {
+                    server.getScheduler().schedule(() -> respond(request, response, callback), delay, TimeUnit.MILLISECONDS);
+                } else {
+                    respond(request, response, callback);
+                }
+                return true;
+            }
+        });
+    }
+
+
+    /**
+     * Make a fraction of the responses much slower than the others, like the occasional slow
+     * response of the real API that dominates tail latency.
+     *
+     * @param rate   fraction of requests, between 0 and 1, delayed further
+     * @param millis delay added to them
+     */
+    public NwsStandInServer setSlowResponses(double rate, long millis) {
+        this.slowRate = rate;
+        this.slowMillis = millis;
+        return this;
+    }
+
+
+    /**
+     * Make a fraction of the successful responses send their headers and half of their body, then
+     * nothing more, like a connection stalled in the middle of a response.
+     *
+     * @param rate fraction of requests, between 0 and 1, whose body stalls
+     */
+    public NwsStandInServer setStalledBodies(double rate) {
+        this.stallRate = rate;
+        return this;
+    }
+
+
+    /**
+     * Start listening.
+     *
+     * @return the base URL to use as {@code upstream.url}
+     */
+    public String start() throws Exception {
+        server.start();
+        baseUrl = "http://localhost:" + connector.getLocalPort();
+        logger.info("NWS stand-in started on {} (latency={}ms, jitter={}ms, errorRate={})", baseUrl, latencyMillis, jitterMillis, errorRate);
+        return baseUrl;
+    }
+
+
+    public void stop() throws Exception {
+        server.stop();
+    }
+
+
+    public void join() throws InterruptedException {
+        server.join();
+    }
+
+
+    private void respond(Request request, Response response, Callback callback) {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            write(response, callback, 503, null, false, "{\"status\":503,\"title\":\"Service Unavailable\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        String path = Request.getPathInContext(request);
+        String acceptEncoding = request.getHeaders().get(HttpHeader.ACCEPT_ENCODING);
+        boolean gzip = compression && acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ENGLISH).contains("gzip");
+        byte[] body = null;
+        if (path.startsWith("/points/")) {
+            body = points(path.substring("/points/".length()));
+            if (body != null && gzip) {
+                body = gzip(body);
+            }
+        } else if (path.startsWith("/gridpoints/") && path.endsWith("/forecast")) {
+            body = gzip ? gzippedForecast : forecast;
+        } else if (path.startsWith("/alerts/active")) {
+            body = gzip ? gzippedAlerts : alerts;
+        }
+
+        if (body == null) {
+            write(response, callback, 404, null, false, "{\"status\":404,\"title\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        // Each encoding is its own representation, with its own entity tag
+        String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + (gzip ? "-gzip" : "") + "\"";
+        if (etag.equals(request.getHeaders().get(HttpHeader.IF_NONE_MATCH))) {
+            write(response, callback, 304, etag, gzip, null);
+        } else {
+            write(response, callback, 200, etag, gzip, body);
+        }
+    }
+
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Resolve a location to a gridpoint of about the NWS 2.5 km resolution.
+     */
+    private byte[] points(String location) {
+        String[] coordinates = location.split(",");
+        if (coordinates.length != 2) {
+            return null;
+        }
+        try {
+            double latitude = Double.parseDouble(coordinates[0]);
+            double longitude = Double.parseDouble(coordinates[1]);
+            long gridX = (long) Math.floor((longitude + 180) * 40);
+            long gridY = (long) Math.floor((latitude + 90) * 44);
+            String gridpointUrl = String.format(Locale.ENGLISH, "%s/gridpoints/SEW/%d,%d", baseUrl, gridX, gridY);
+            return pointsTemplate.replace(RECORDED_GRIDPOINT_URL, gridpointUrl).getBytes(StandardCharsets.UTF_8);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+
+    private void write(Response response, Callback callback, int status, String etag, boolean gzip, byte[] body) {
+        response.setStatus(status);
+        response.getHeaders().put(HttpHeader.CONTENT_TYPE, status == 200 ? "application/geo+json" : "application/problem+json");
+        if (status == 200 || status == 304) {
+            response.getHeaders().put(HttpHeader.CACHE_CONTROL, cacheControl);
+            response.getHeaders().put(HttpHeader.ETAG, etag);
+            response.getHeaders().put(HttpHeader.VARY, "Accept-Encoding");
+        }
+        if (gzip && body != null) {
+            response.getHeaders().put(HttpHeader.CONTENT_ENCODING, "gzip");
+        }
+        if (body == null) {
+            callback.succeeded();
+        } else if (status == 200 && stallRate > 0 && ThreadLocalRandom.current().nextDouble() < stallRate) {
+            // The callback is never completed: the response stays open until the client gives up
+            response.getHeaders().put(HttpHeader.CONTENT_LENGTH, body.length);
+            response.write(false, ByteBuffer.wrap(body, 0, body.length / 2), Callback.NOOP);
+        } else {
+            response.write(true, ByteBuffer.wrap(body), callback);
+        }
+    }
+
+
+    /**
+     * Main entry point of the stand-in.
+     *
+     * Configuration: {@code standin.port} (8090), {@code standin.latency.ms} (0), {@code standin.jitter.ms} (0),
+     * {@code standin.error-rate} (0.0), {@code standin.cache-control} ({@code max-age=60}),
+     * {@code standin.compression} (true), {@code standin.slow-rate} (0.0), {@code standin.slow.ms} (1000)
+     * and {@code standin.stall-rate} (0.0).
+     */
+    public static void main(String[] args) throws Exception {
+        NwsStandInServer standIn = new NwsStandInServer(
+                Config.getInt("standin.port", 8090),
+                Config.getLong("standin.latency.ms", 0),
+                Config.getLong("standin.jitter.ms", 0),
+                Config.getDouble("standin.error-rate", 0.0),
+                Config.get("standin.cache-control", "max-age=60"),
+                Config.getBoolean("standin.compression", true));
+        standIn.setSlowResponses(Config.getDouble("standin.slow-rate", 0.0), Config.getLong("standin.slow.ms", 1000));
+        standIn.setStalledBodies(Config.getDouble("standin.stall-rate", 0.0));
+        standIn.start();
+        standIn.join();
+    }
+
+}
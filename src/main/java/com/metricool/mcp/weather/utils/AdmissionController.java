@@ -0,0 +1,338 @@
+package com.metricool.mcp.weather.utils;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Gauge;
+import com.metricool.mcp.weather.metrics.Metrics;
+
+
+/**
+ * Admission control for outbound requests, per upstream host.
+ *
+ * A request needs a token from the host's {@link TokenBucket} ({@code upstream.rate} per second,
+ * up to {@code upstream.burst}) and a slot under its concurrency limit. The limit adapts to the
+ * upstream: it grows by one per window of requests answered within {@code upstream.latency-tolerance}
+ * times the lowest recent latency, shrinks a little when latency rises above that, and is cut by
+ * {@code upstream.concurrency.backoff} on a 429, a 503 or a failed request. A {@code Retry-After}
+ * also pauses the token bucket.
+ *
+ * Requests that cannot be admitted wait in a queue, at most {@code upstream.queue.timeout.ms};
+ * past that, or when the queue already holds {@code upstream.queue.max} requests, they are shed
+ * with an {@link OverloadedException} instead of piling up on an upstream that is throttling us.
+ */
+public class AdmissionController {
+
+    private static final Gauge LIMIT = Metrics.REGISTRY.gauge("upstream_concurrency_limit",
+            "Adaptive limit of concurrent upstream requests.", "host");
+    private static final Gauge QUEUED = Metrics.REGISTRY.gauge("upstream_queued_requests",
+            "Upstream requests waiting for admission.", "host");
+    private static final Counter SHED = Metrics.REGISTRY.counter("upstream_shed_requests_total",
+            "Upstream requests shed without being sent.", "host", "reason");
+
+    /**
+     * Right to send one request. Must be released exactly once.
+     */
+    public final class Permit {
+
+        private final Host host;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(Host host) {
+            this.host = host;
+        }
+
+        /**
+         * Release after the upstream answered, or failed to.
+         *
+         * @param response the response, or null if the request failed
+         */
+        public void release(HttpResponse<?> response) {
+            if (response == null) {
+                release(-1, 0);
+            } else {
+                release(response.statusCode(), retryAfterSeconds(response.headers()));
+            }
+        }
+
+        /**
+         * @param statusCode        HTTP status, or -1 if the request failed
+         * @param retryAfterSeconds the {@code Retry-After} of the response, or 0
+         */
+        void release(int statusCode, long retryAfterSeconds) {
+            try {
+                synchronized (host) {
+                    if (released) {
+                        return;
+                    }
+                    released = true;
+                    host.inFlight--;
+                    host.onSample(System.nanoTime() - startNanos, statusCode, retryAfterSeconds);
+                }
+            } finally {
+                drain(host);
+            }
+        }
+
+        /**
+         * Release without sending, e.g. when the caller went away.
+         */
+        private void cancel() {
+            synchronized (host) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                host.inFlight--;
+                host.bucket.refund();
+            }
+            drain(host);
+        }
+    }
+
+    private static final class Waiter {
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+    }
+
+    private final class Host {
+
+        private final String name;
+        private final TokenBucket bucket = new TokenBucket(rate, burst);
+        private final Deque<Waiter> queue = new ArrayDeque<>();
+        private int inFlight;
+        private double limit = initialLimit;
+        private double minRttNanos = Double.MAX_VALUE;
+        private boolean drainScheduled;
+
+        private Host(String name) {
+            this.name = name;
+            LIMIT.bind(() -> (long) getLimit(), name);
+            QUEUED.bind(this::getQueued, name);
+        }
+
+        private synchronized double getLimit() {
+            return limit;
+        }
+
+        private synchronized long getQueued() {
+            return queue.size();
+        }
+
+        /**
+         * Adjust the limit to one more completed request. Called with the lock held.
+         */
+        private void onSample(long rttNanos, int statusCode, long retryAfterSeconds) {
+            if (statusCode == -1 || statusCode == 429 || statusCode == 503) {
+                limit = Math.max(minLimit, limit * backoff);
+                if (retryAfterSeconds > 0) {
+                    bucket.pause(TimeUnit.SECONDS.toNanos(retryAfterSeconds));
+                }
+                return;
+            }
+
+            // Slowly forget the lowest latency, so it follows a lasting change of the upstream
+            minRttNanos = Math.min(rttNanos, minRttNanos * 1.001);
+            if (rttNanos > minRttNanos * latencyTolerance) {
+                limit = Math.max(minLimit, limit * 0.95);
+            } else if (inFlight + 1 >= limit / 2) {
+                // Only grow while the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    private final double rate;
+    private final double burst;
+    private final double initialLimit;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoff;
+    private final double latencyTolerance;
+    private final long queueTimeoutMillis;
+    private final int maxQueue;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "upstream-admission");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    public AdmissionController() {
+        this(Config.getDouble("upstream.rate", 20),
+                Config.getDouble("upstream.burst", 20),
+                Config.getInt("upstream.concurrency.initial", 16),
+                Config.getInt("upstream.concurrency.min", 1),
+                Config.getInt("upstream.concurrency.max", 64),
+                Config.getDouble("upstream.concurrency.backoff", 0.5),
+                Config.getDouble("upstream.latency-tolerance", 2.0),
+                Config.getLong("upstream.queue.timeout.ms", 2000),
+                Config.getInt("upstream.queue.max", 500));
+    }
+
+
+    public AdmissionController(double rate, double burst, int initialLimit, int minLimit, int maxLimit,
+            double backoff, double latencyTolerance, long queueTimeoutMillis, int maxQueue) {
+        this.rate = rate;
+        this.burst = burst;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoff = backoff;
+        this.latencyTolerance = latencyTolerance;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxQueue = maxQueue;
+    }
+
+
+    /**
+     * Wait for admission to send a request to a host.
+     *
+     * @return a future completed with the permit, or with an {@link OverloadedException} if the request is shed
+     */
+    public CompletableFuture<Permit> acquire(String hostName) {
+        Host host = hosts.computeIfAbsent(hostName.toLowerCase(Locale.ENGLISH), Host::new);
+        Waiter waiter = new Waiter();
+        synchronized (host) {
+            if (host.queue.size() >= maxQueue) {
+                SHED.inc(host.name, "queue-full");
+                return CompletableFuture.failedFuture(new OverloadedException(String.format(Locale.ENGLISH,
+                        "Upstream %s is overloaded: %d requests already waiting", host.name, host.queue.size())));
+            }
+            host.queue.add(waiter);
+        }
+        waiter.timeout = scheduler.schedule(() -> expire(host, waiter), queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        drain(host);
+        return waiter.future;
+    }
+
+
+    /**
+     * Blocking variant of {@link #acquire(String)}.
+     */
+    public Permit acquireBlocking(String hostName) throws IOException, InterruptedException {
+        CompletableFuture<Permit> future = acquire(hostName);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            if (!future.cancel(false)) {
+                Permit permit = future.getNow(null);
+                if (permit != null) {
+                    permit.cancel();
+                }
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * @return the {@code Retry-After} of a response in seconds, given as a delay or as an HTTP date,
+     *         or 0 if it is missing, malformed or past
+     */
+    static long retryAfterSeconds(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").map(String::trim).orElse("");
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            // Not a delay: an HTTP date
+        }
+        try {
+            long seconds = Duration.between(Instant.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)).toSeconds();
+            return Math.max(0, seconds);
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+
+    /**
+     * @return the current concurrency limit of a host, or its initial limit if it was never used
+     */
+    public double getLimit(String hostName) {
+        Host host = hosts.get(hostName.toLowerCase(Locale.ENGLISH));
+        return host == null ? initialLimit : host.getLimit();
+    }
+
+
+    private void expire(Host host, Waiter waiter) {
+        synchronized (host) {
+            if (!host.queue.remove(waiter)) {
+                return;
+            }
+        }
+        SHED.inc(host.name, "timeout");
+        waiter.future.completeExceptionally(new OverloadedException(String.format(Locale.ENGLISH,
+                "Upstream %s is overloaded: no request slot within %d ms (limit %d in flight)",
+                host.name, queueTimeoutMillis, (int) host.getLimit())));
+    }
+
+
+    /**
+     * Admit as many waiting requests as the limit and the token bucket allow.
+     */
+    private void drain(Host host) {
+        List<Waiter> admitted = new ArrayList<>();
+        synchronized (host) {
+            while (!host.queue.isEmpty() && host.inFlight < Math.floor(host.limit)) {
+                long wait = host.bucket.tryAcquire();
+                if (wait > 0) {
+                    if (!host.drainScheduled) {
+                        host.drainScheduled = true;
+                        scheduler.schedule(() -> {
+                            synchronized (host) {
+                                host.drainScheduled = false;
+                            }
+                            drain(host);
+                        }, wait, TimeUnit.NANOSECONDS);
+                    }
+                    break;
+                }
+                admitted.add(host.queue.poll());
+                host.inFlight++;
+            }
+        }
+
+        // Complete outside the lock: the callers continue on this thread
+        for (Waiter waiter : admitted) {
+            if (waiter.timeout != null) {
+                waiter.timeout.cancel(false);
+            }
+            Permit permit = new Permit(host);
+            if (!waiter.future.complete(permit)) {
+                permit.cancel();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.metricool.mcp.weather.utils;
+
+import java.util.Locale;
+
+
+/**
+ * Circuit breaker of one upstream endpoint.
+ *
+ * It opens after {@code failureThreshold} consecutive failures (timeouts, connection errors,
+ * 5xx), and then rejects requests right away instead of letting every caller wait for a timeout.
+ * After {@code openMillis} a single probe request is let through: if it succeeds the breaker
+ * closes, if it fails the breaker stays open for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+
+    public CircuitBreaker(String name) {
+        this(name, Config.getInt("breaker.failure-threshold", 5), Config.getLong("breaker.open.seconds", 30) * 1000);
+    }
+
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+
+    /**
+     * Ask to send a request. Every request allowed must then report its outcome to
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     *
+     * @throws CircuitOpenException if the breaker is open
+     */
+    public synchronized void acquire() throws CircuitOpenException {
+        if (state == State.CLOSED) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return;
+        }
+        throw new CircuitOpenException(String.format(Locale.ENGLISH,
+                "Upstream %s is unavailable: %d consecutive failures, retrying in %d s",
+                name, consecutiveFailures, Math.max(1, (openedAt + openMillis - now + 999) / 1000)));
+    }
+
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+
+    /**
+     * The request ended without telling anything about the upstream, e.g. it was shed locally.
+     */
+    public synchronized void onIgnored() {
+        probeInFlight = false;
+    }
+
+
+    public synchronized State getState() {
+        return state;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.metricool.mcp.weather.utils;
+
+import java.io.IOException;
+
+
+/**
+ * A request was not sent because the circuit breaker of its upstream endpoint is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.metricool.mcp.weather.utils;
+
+import java.util.Locale;
+
+
+/**
+ * Runtime configuration lookup.
+ *
+ * A key like {@code gridcache.ttl.hours} is read from the system property
+ * {@code mcp.weather.gridcache.ttl.hours} first, then from the environment variable
+ * {@code MCP_WEATHER_GRIDCACHE_TTL_HOURS}, and falls back to the given default.
+ */
+public final class Config {
+
+    private static final String PROPERTY_PREFIX = "mcp.weather.";
+    private static final String ENV_PREFIX = "MCP_WEATHER_";
+
+    private Config() {
+    }
+
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + key);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(ENV_PREFIX + key.replace('.', '_').replace('-', '_').toUpperCase(Locale.ENGLISH));
+        }
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.metricool.mcp.weather.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * When to send a second, identical upstream request for one that is slow to answer.
+ *
+ * The delay before hedging a request is a high percentile ({@code hedge.percentile}) of the
+ * recent latencies of its endpoint, so only the slowest few percent of requests are hedged, and
+ * never less than {@code hedge.min-delay.ms}. Until an endpoint has {@value #MIN_SAMPLES}
+ * latencies there is no delay, and no hedging.
+ *
+ * Hedges are also limited by a budget: every request adds {@code hedge.max-ratio} tokens, up to
+ * {@value #MAX_TOKENS}, and every hedge takes one, so hedges never exceed that fraction of the
+ * traffic even when the upstream slows down as a whole.
+ */
+public class HedgingPolicy {
+
+    static final int WINDOW = 512;
+    static final int MIN_SAMPLES = 32;
+    private static final int RECOMPUTE_EVERY = 32;
+    private static final double MAX_TOKENS = 10;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double maxRatio;
+    private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+    private double tokens;
+
+
+    public HedgingPolicy() {
+        this(Config.getDouble("hedge.percentile", 95), TimeUnit.MILLISECONDS.toNanos(Config.getLong("hedge.min-delay.ms", 20)),
+                Config.getDouble("hedge.max-ratio", 0.05));
+    }
+
+
+    public HedgingPolicy(double percentile, long minDelayNanos, double maxRatio) {
+        this.percentile = percentile;
+        this.minDelayNanos = minDelayNanos;
+        this.maxRatio = maxRatio;
+    }
+
+
+    /**
+     * Record the latency of a successful request.
+     */
+    public void record(String endpoint, long nanos) {
+        latencies.computeIfAbsent(endpoint, name -> new Latencies()).add(nanos);
+    }
+
+
+    /**
+     * Count a request sent for the first time, which adds to the hedging budget.
+     *
+     * @return how long to wait for its response before hedging it, or -1 not to hedge it
+     */
+    public long onRequest(String endpoint) {
+        synchronized (this) {
+            tokens = Math.min(MAX_TOKENS, tokens + maxRatio);
+        }
+        Latencies endpointLatencies = latencies.get(endpoint);
+        return endpointLatencies == null ? -1 : endpointLatencies.delay();
+    }
+
+
+    /**
+     * Ask to send a hedge, once its delay is over.
+     *
+     * @return false if the budget is spent
+     */
+    public synchronized boolean tryHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+
+    /**
+     * Ring of the last {@value #WINDOW} latencies of an endpoint, and the delay computed from them.
+     */
+    private final class Latencies {
+
+        private final long[] samples = new long[WINDOW];
+        private long count;
+        private long delay = -1;
+
+        synchronized void add(long nanos) {
+            samples[(int) (count++ % WINDOW)] = nanos;
+            if (count >= MIN_SAMPLES && count % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW));
+                Arrays.sort(sorted);
+                int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+                delay = Math.max(minDelayNanos, sorted[Math.max(0, Math.min(rank, sorted.length - 1))]);
+            }
+        }
+
+        synchronized long delay() {
+            return delay;
+        }
+    }
+
+}
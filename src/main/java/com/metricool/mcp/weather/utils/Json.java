@@ -0,0 +1,19 @@
+package com.metricool.mcp.weather.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * The process wide {@link ObjectMapper}, shared by the MCP transports and the upstream parsers.
+ *
+ * An ObjectMapper is thread safe once configured and caches the (de)serializers it builds,
+ * so a single instance pays for that introspection once instead of once per call.
+ */
+public final class Json {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Json() {
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.metricool.mcp.weather.utils;
+
+import java.io.IOException;
+
+
+/**
+ * A request was shed before reaching the upstream, because the upstream is already
+ * at its rate or concurrency limit and the request could not wait any longer.
+ */
+public class OverloadedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+
+}
@@ -1,41 +1,736 @@
 package com.metricool.mcp.weather.utils;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.metricool.mcp.weather.server.McpSseServer;
+import com.metricool.mcp.weather.cache.RefreshScheduler;
+import com.metricool.mcp.weather.cache.ResponseCache;
+import com.metricool.mcp.weather.cluster.Cluster;
+import com.metricool.mcp.weather.metrics.Counter;
+import com.metricool.mcp.weather.metrics.Gauge;
+import com.metricool.mcp.weather.metrics.Metrics;
 
 public class RestClient {
 
-    private static final Logger logger = LoggerFactory.getLogger(McpSseServer.class);
+    private static final Logger logger = LoggerFactory.getLogger(RestClient.class);
     
-    private static final HttpClient httpClient  = HttpClient.newBuilder()
-            .build();;
+    private static final HttpClient httpClient = createHttpClient();
+
+    private static final ResponseCache responseCache = new ResponseCache();
+    private static final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+    private static final RefreshScheduler refreshScheduler = new RefreshScheduler(responseCache);
+    private static final AdmissionController admissionController = new AdmissionController();
+    private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private static final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+    private static final HedgingPolicy hedgingPolicy = Config.getBoolean("hedge.enabled", false) ? new HedgingPolicy() : null;
+    private static final Cluster configuredCluster = Cluster.fromConfig();
+
+    /**
+     * Result of a request to a cluster peer that did not answer: the key is then fetched upstream.
+     */
+    private static final Object PEER_UNAVAILABLE = new Object();
+
+    /**
+     * Ask for compressed responses, decompressed while they are parsed.
+     */
+    private static final boolean COMPRESSION = Config.getBoolean("http.compression", true);
+    private static final int DECODE_BUFFER_SIZE = 8192;
+
+    private static final Gauge CIRCUIT_STATE = Metrics.REGISTRY.gauge("upstream_circuit_state",
+            "Circuit breaker state by endpoint: 0 closed, 1 open, 2 half open.", "endpoint");
+    private static final Counter CIRCUIT_REJECTED = Metrics.REGISTRY.counter("upstream_circuit_rejected_total",
+            "Upstream requests failed fast by an open circuit breaker.", "endpoint");
+    private static final Counter HEDGES = Metrics.REGISTRY.counter("upstream_hedged_requests_total",
+            "Slow upstream requests hedged with a second one, by result: sent, won (answered first) or over-budget (not sent).",
+            "endpoint", "result");
+
+    static {
+        Metrics.REGISTRY.counterFunction("response_cache_requests_total", "Response cache lookups.", "result")
+                .bind(responseCache::getHits, "hit")
+                .bind(responseCache::getMisses, "miss");
+        Metrics.REGISTRY.counterFunction("response_cache_stale_hits_total", "Stale entries served while being refreshed.")
+                .bind(responseCache::getStaleHits);
+        Metrics.REGISTRY.counterFunction("response_cache_background_refreshes_total", "Popular entries refreshed before they expired.")
+                .bind(refreshScheduler::getRefreshes);
+        Metrics.REGISTRY.counterFunction("response_cache_revalidations_total", "Stale entries revalidated by a 304.")
+                .bind(responseCache::getRevalidations);
+        Metrics.REGISTRY.counterFunction("response_cache_evictions_total", "Entries evicted to stay within the memory budget.")
+                .bind(responseCache::getEvictions);
+        Metrics.REGISTRY.gauge("response_cache_bytes", "Body bytes held by the response cache.")
+                .bind(responseCache::getTotalBytes);
+        Metrics.REGISTRY.gauge("response_cache_entries", "Responses held by the response cache.")
+                .bind(responseCache::size);
+        Metrics.REGISTRY.counterFunction("upstream_coalesced_requests_total", "GET requests served by an identical request already in flight.")
+                .bind(singleFlight::getCoalesced);
+    }
+
+
+    /**
+     * Parses a response body as it is read.
+     */
+    @FunctionalInterface
+    public interface BodyParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
     
+
+    private final Cluster cluster;
+
             
     public RestClient() {
+        this(configuredCluster);
+    }
+
+
+    /**
+     * @param cluster the cluster sharing upstream responses, instead of the one of {@code cluster.peers}; null for none
+     */
+    public RestClient(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+
+    /**
+     * The HTTP client shared by all requests, tuned for many small requests to few hosts.
+     *
+     * It negotiates HTTP/2, so concurrent requests to api.weather.gov multiplex over one
+     * connection, and keeps HTTP/1.1 connections alive in the JDK pool between calls. Responses
+     * are handled on a small dedicated executor instead of the default unbounded cached pool.
+     */
+    private static HttpClient createHttpClient() {
+        // The JDK reads its pool settings once, when the first client is created
+        setDefaultProperty("jdk.httpclient.connectionPoolSize", Config.get("http.pool.size", "0"));
+        setDefaultProperty("jdk.httpclient.keepalive.timeout", Config.get("http.keepalive.seconds", "30"));
+
+        int threads = Config.getInt("http.executor.threads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+        AtomicLong threadCount = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http-client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.valueOf(Config.get("http.version", "HTTP_2")))
+                .connectTimeout(Duration.ofMillis(Config.getLong("http.connect-timeout.ms", 5000)))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+
+    private static void setDefaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
     }
     
     
-    public String doGet(URI uri, String... headers) throws IOException, InterruptedException {
+    /**
+     * GET a URI and parse its body straight from the response stream.
+     *
+     * Goes through the shared {@link ResponseCache}: fresh entries are served without a request,
+     * stale ones are revalidated with a conditional GET. Stale entries within their stale-while-revalidate
+     * window are served as they are while a background request refreshes them. Concurrent misses for the same URI
+     * are coalesced into a single upstream request, so a URI must always be read with the same parser.
+     * Requests that go upstream pass the {@link CircuitBreaker} of their endpoint, are admitted by the shared
+     * {@link AdmissionController}, and time out after {@code http.timeout.<endpoint>.ms} without a complete response.
+     * With {@code hedge.enabled}, a request slower than usual is sent a second time, see {@link HedgingPolicy}.
+     * In cluster mode a miss is first sent to the replica owning the URI, see {@link Cluster}.
+     *
+     * @param endpoint upstream endpoint class (points, forecast, alerts...), used to label metrics and
+     *                 to pick the timeout and the circuit breaker
+     * @throws UpstreamException if the upstream does not answer 200 (or 304 to a revalidation)
+     * @throws OverloadedException if the request was shed because the upstream is at its limit
+     * @throws CircuitOpenException if the endpoint failed repeatedly and is not retried yet
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T doGet(String endpoint, URI uri, BodyParser<T> parser, String... headers) throws IOException, InterruptedException {
+        return (T) doGet(endpoint, uri, parser, false, headers);
+    }
+
+
+    /**
+     * {@link #doGet(String, URI, BodyParser, String...)} for a cluster peer that asked this replica,
+     * the owner of the URI: it never asks another peer.
+     *
+     * @return the cache entry of the response, with its freshness and validators; one already expired
+     *         if the response cannot be cached
+     */
+    public ResponseCache.Entry doGetForPeer(String endpoint, URI uri, BodyParser<?> parser, String... headers)
+            throws IOException, InterruptedException {
+        Object value = doGet(endpoint, uri, parser, true, headers);
+        ResponseCache.Entry entry = responseCache.get(normalize(uri));
+        if (entry == null) {
+            long now = System.currentTimeMillis();
+            entry = new ResponseCache.Entry(value, 0, null, null, now, now, now);
+        }
+        return entry;
+    }
+
+
+    /**
+     * @param local true not to ask the cluster peer owning the URI
+     */
+    private Object doGet(String endpoint, URI uri, BodyParser<?> parser, boolean local, String... headers)
+            throws IOException, InterruptedException {
+        String key = normalize(uri);
+        ResponseCache.Entry cached = responseCache.get(key);
+        if (serveFromCache(endpoint, key, cached, uri, parser, headers)) {
+            return cached.value();
+        }
         
-        HttpRequest request = HttpRequest.newBuilder()
+        return singleFlight.execute(key, () -> {
+            String peer = local || cluster == null ? null : cluster.route(key, uri);
+            if (peer != null) {
+                Object value = await(fetchFromPeer(peer, endpoint, key, uri, cached, parser));
+                if (value != PEER_UNAVAILABLE) {
+                    return value;
+                }
+            }
+            CircuitBreaker breaker = acquireCircuit(endpoint);
+            try {
+                Object value = hedgingPolicy != null
+                        ? await(sendHedged(endpoint, key, uri, cached, parser, headers))
+                        : send(endpoint, key, uri, cached, parser, headers);
+                recordOutcome(breaker, null);
+                return value;
+            } catch (Throwable e) {
+                // Whatever the failure, a half-open breaker must learn the outcome of its probe
+                recordOutcome(breaker, e);
+                throw e;
+            }
+        });
+    }
+
+
+    private Object send(String endpoint, String key, URI uri, ResponseCache.Entry cached,
+            BodyParser<?> parser, String... headers) throws IOException, InterruptedException {
+        HttpRequest request = buildGetRequest(endpoint, uri, cached, headers);
+        AdmissionController.Permit permit = admissionController.acquireBlocking(uri.getHost());
+        AtomicLong inFlight = Metrics.UPSTREAM_IN_FLIGHT.value(endpoint);
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = null;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            Duration timeout = getTimeout(endpoint);
+            try (InputStream body = response.body();
+                    BodyDeadline deadline = new BodyDeadline(body, timeout.toNanos() - (System.nanoTime() - start))) {
+                try {
+                    return handleGetResponse(endpoint, key, cached, response, body, parser);
+                } catch (IOException | RuntimeException e) {
+                    if (deadline.isExpired()) {
+                        throw timeoutException(uri, timeout);
+                    }
+                    throw e;
+                }
+            }
+        } catch (IOException e) {
+            Metrics.recordUpstreamError(endpoint, e);
+            throw e;
+        } finally {
+            permit.release(response);
+            inFlight.decrementAndGet();
+            Metrics.UPSTREAM_DURATION.observeSince(start, endpoint);
+        }
+    }
+
+
+    /**
+     * Non-blocking variant of {@link #doGet(String, URI, BodyParser, String...)}, built on {@link HttpClient#sendAsync}.
+     * It shares the cache and the in-flight requests with the blocking variant.
+     *
+     * The body is received as a byte array, so parsing never blocks a thread waiting for the network.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> doGetAsync(String endpoint, URI uri, BodyParser<T> parser, String... headers) {
+        String key = normalize(uri);
+        ResponseCache.Entry cached = responseCache.get(key);
+        if (serveFromCache(endpoint, key, cached, uri, parser, headers)) {
+            return CompletableFuture.completedFuture((T) cached.value());
+        }
+
+        return (CompletableFuture<T>) fetchAsync(endpoint, key, uri, cached, parser, headers);
+    }
+
+
+    /**
+     * Decide whether a cache entry can be served right away: a fresh one, or a stale one within its
+     * stale-while-revalidate window, whose refresh is then started in the background.
+     *
+     * @return false on a miss
+     */
+    private boolean serveFromCache(String endpoint, String key, ResponseCache.Entry cached, URI uri,
+            BodyParser<?> parser, String... headers) {
+        refreshScheduler.recordAccess(key, () -> refresh(endpoint, uri, parser, headers));
+        if (cached != null && cached.isFresh()) {
+            responseCache.recordHit();
+            return true;
+        }
+        if (cached != null && cached.isStaleWhileRevalidate()) {
+            responseCache.recordStaleHit();
+            fetchAsync(endpoint, key, uri, cached, parser, headers);
+            return true;
+        }
+        responseCache.recordMiss();
+        return false;
+    }
+
+
+    /**
+     * Refresh a cache entry in the background, revalidating it if it has validators.
+     */
+    private void refresh(String endpoint, URI uri, BodyParser<?> parser, String... headers) {
+        String key = normalize(uri);
+        fetchAsync(endpoint, key, uri, responseCache.get(key), parser, headers);
+    }
+
+
+    private CompletableFuture<Object> fetchAsync(String endpoint, String key, URI uri, ResponseCache.Entry cached,
+            BodyParser<?> parser, String... headers) {
+        return singleFlight.executeAsync(key, () -> {
+            String peer = cluster == null ? null : cluster.route(key, uri);
+            if (peer != null) {
+                return fetchFromPeer(peer, endpoint, key, uri, cached, parser).thenCompose(value -> value != PEER_UNAVAILABLE
+                        ? CompletableFuture.completedFuture(value)
+                        : fetchUpstreamAsync(endpoint, key, uri, cached, parser, headers));
+            }
+            return fetchUpstreamAsync(endpoint, key, uri, cached, parser, headers);
+        });
+    }
+
+
+    private CompletableFuture<Object> fetchUpstreamAsync(String endpoint, String key, URI uri, ResponseCache.Entry cached,
+            BodyParser<?> parser, String... headers) {
+        CircuitBreaker breaker;
+        try {
+            breaker = acquireCircuit(endpoint);
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Object> response;
+        try {
+            response = hedgingPolicy != null
+                    ? sendHedged(endpoint, key, uri, cached, parser, headers)
+                    : sendAsync(endpoint, key, uri, cached, parser, headers);
+        } catch (Throwable e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((value, error) -> recordOutcome(breaker, error));
+    }
+
+
+    /**
+     * Ask the cluster peer owning a URI for it. The peer answers from its cache, or fetches it,
+     * with the freshness and validators of its cache entry, and the body is the parsed response as
+     * JSON, which the same parser reads.
+     *
+     * @return the response, or {@link #PEER_UNAVAILABLE} if the peer did not answer; fails with an
+     *         {@link UpstreamException} if the upstream answered the peer with an error
+     */
+    private CompletableFuture<Object> fetchFromPeer(String peer, String endpoint, String key, URI uri,
+            ResponseCache.Entry cached, BodyParser<?> parser) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(cluster.fetchUri(peer, endpoint, uri))
+                .version(HttpClient.Version.HTTP_1_1)
+                .timeout(cluster.getTimeout())
+                .header(Cluster.SECRET_HEADER, cluster.getSecret())
+                .GET();
+        if (cached != null && cached.etag() != null) {
+            builder.header("If-None-Match", cached.etag());
+        }
+        return withDeadline(httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray()), uri, cluster.getTimeout())
+                .handle((response, error) -> {
+            if (error != null) {
+                cluster.onFailure(peer, unwrap(error));
+                return PEER_UNAVAILABLE;
+            }
+            if (response.statusCode() == 304 && cached != null) {
+                cluster.onAnswer(peer, "not-modified");
+                return responseCache.revalidated(key, cached, response.headers()).value();
+            }
+            if (response.statusCode() == 200) {
+                try {
+                    Object value = parser.parse(new ByteArrayInputStream(response.body()));
+                    responseCache.put(key, value, response.body().length, response.headers());
+                    cluster.onAnswer(peer, "hit");
+                    return value;
+                } catch (IOException | RuntimeException e) {
+                    cluster.onFailure(peer, e);
+                    return PEER_UNAVAILABLE;
+                }
+            }
+            if (response.headers().firstValue(Cluster.UPSTREAM_STATUS_HEADER).isPresent()) {
+                cluster.onAnswer(peer, "upstream-error");
+                throw new CompletionException(new UpstreamException(uri, response.statusCode()));
+            }
+            // Overloaded, or its circuit breaker is open: try locally
+            cluster.onAnswer(peer, "unavailable");
+            return PEER_UNAVAILABLE;
+        });
+    }
+
+
+    private CompletableFuture<Object> sendAsync(String endpoint, String key, URI uri, ResponseCache.Entry cached,
+            BodyParser<?> parser, String... headers) {
+        return admissionController.acquire(uri.getHost()).thenCompose(permit -> {
+            HttpRequest request = buildGetRequest(endpoint, uri, cached, headers);
+            AtomicLong inFlight = Metrics.UPSTREAM_IN_FLIGHT.value(endpoint);
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            return withDeadline(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()), uri, getTimeout(endpoint))
+                    .whenComplete((response, error) -> permit.release(response))
+                    .thenApply(response -> {
+                        try {
+                            return handleGetResponse(endpoint, key, cached, response, new ByteArrayInputStream(response.body()), parser);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    })
+                    .whenComplete((value, error) -> {
+                        inFlight.decrementAndGet();
+                        Metrics.UPSTREAM_DURATION.observeSince(start, endpoint);
+                        if (error != null) {
+                            Metrics.recordUpstreamError(endpoint, unwrap(error));
+                        } else if (hedgingPolicy != null) {
+                            hedgingPolicy.record(endpoint, System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+
+    /**
+     * Send a request, and once it has taken longer than the hedging delay of its endpoint, an identical
+     * one if the budget allows. The first successful response wins; the request fails only when every
+     * attempt failed. A request failing before its delay is not hedged: hedging is for slowness, not errors.
+     */
+    private CompletableFuture<Object> sendHedged(String endpoint, String key, URI uri, ResponseCache.Entry cached,
+            BodyParser<?> parser, String... headers) {
+        long delay = hedgingPolicy.onRequest(endpoint);
+        CompletableFuture<Object> primary = sendAsync(endpoint, key, uri, cached, parser, headers);
+        if (delay < 0) {
+            return primary;
+        }
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        primary.whenComplete((value, error) -> completeAttempt(result, pending, value, error, null));
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (!hedgingPolicy.tryHedge()) {
+                HEDGES.inc(endpoint, "over-budget");
+                return;
+            }
+            // No hedge once every attempt has failed
+            if (pending.getAndUpdate(attempts -> attempts == 0 ? 0 : attempts + 1) == 0) {
+                return;
+            }
+            HEDGES.inc(endpoint, "sent");
+            sendAsync(endpoint, key, uri, cached, parser, headers)
+                    .whenComplete((value, error) -> completeAttempt(result, pending, value, error, endpoint));
+        });
+        return result;
+    }
+
+
+    /**
+     * @param hedgeOf the endpoint if this attempt is a hedge, to count it when it wins
+     */
+    private static void completeAttempt(CompletableFuture<Object> result, AtomicInteger pending, Object value, Throwable error,
+            String hedgeOf) {
+        if (error == null) {
+            if (result.complete(value) && hedgeOf != null) {
+                HEDGES.inc(hedgeOf, "won");
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(error);
+        }
+    }
+
+
+    /**
+     * Wait for an asynchronous request, failing with its own exception.
+     */
+    private static Object await(CompletableFuture<Object> response) throws IOException, InterruptedException {
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+
+    /**
+     * Fail an exchange that has not received its whole body within the timeout of its endpoint,
+     * and cancel it: the timeout of an {@link HttpRequest} only bounds the wait for the headers.
+     */
+    private static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> exchange, URI uri, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        exchange.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.completeExceptionally(timeoutException(uri, timeout))) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+
+    private static HttpTimeoutException timeoutException(URI uri, Duration timeout) {
+        return new HttpTimeoutException("No complete response from " + uri + " within " + timeout.toMillis() + " ms");
+    }
+
+
+    /**
+     * Closes a response body still being read when the timeout of its request expires, which fails
+     * the read blocked on it, so a stalled body cannot hold the caller past the timeout.
+     */
+    private static final class BodyDeadline implements AutoCloseable {
+
+        private static final int READING = 0;
+        private static final int DONE = 1;
+        private static final int EXPIRED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(READING);
+
+        BodyDeadline(InputStream body, long remainingNanos) {
+            CompletableFuture.delayedExecutor(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS).execute(() -> {
+                if (state.compareAndSet(READING, EXPIRED)) {
+                    try {
+                        body.close();
+                    } catch (IOException e) {
+                        logger.debug("Cannot close an expired response body: {}", e.toString());
+                    }
+                }
+            });
+        }
+
+        boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        @Override
+        public void close() {
+            state.compareAndSet(READING, DONE);
+        }
+    }
+
+
+    /**
+     * @return the circuit breaker of an endpoint, or null if it was never called
+     */
+    static CircuitBreaker getCircuitBreaker(String endpoint) {
+        return circuitBreakers.get(endpoint);
+    }
+
+
+    private static CircuitBreaker acquireCircuit(String endpoint) throws CircuitOpenException {
+        CircuitBreaker breaker = circuitBreakers.computeIfAbsent(endpoint, name -> {
+            CircuitBreaker created = new CircuitBreaker(name);
+            CIRCUIT_STATE.bind(() -> created.getState().ordinal(), name);
+            return created;
+        });
+        try {
+            breaker.acquire();
+        } catch (CircuitOpenException e) {
+            CIRCUIT_REJECTED.inc(endpoint);
+            throw e;
+        }
+        return breaker;
+    }
+
+
+    /**
+     * Tell the breaker whether the upstream answered. Client errors mean the upstream is up, server
+     * errors that it is failing; requests shed or throttled (429) before an answer tell nothing about it.
+     */
+    static void recordOutcome(CircuitBreaker breaker, Throwable error) {
+        error = unwrap(error);
+        if (error == null || error instanceof UpstreamException e && e.getStatusCode() < 500 && e.getStatusCode() != 429) {
+            breaker.onSuccess();
+        } else if (error instanceof OverloadedException || error instanceof InterruptedException
+                || error instanceof CancellationException || error instanceof UpstreamException e && e.getStatusCode() == 429) {
+            breaker.onIgnored();
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+
+    /**
+     * @return how long to wait for the complete response of an endpoint: {@code http.timeout.<endpoint>.ms},
+     *         or else {@code http.timeout.ms}
+     */
+    private static Duration getTimeout(String endpoint) {
+        return timeouts.computeIfAbsent(endpoint, name ->
+                Duration.ofMillis(Config.getLong("http.timeout." + name + ".ms", Config.getLong("http.timeout.ms", 10000))));
+    }
+
+    
+    private HttpRequest buildGetRequest(String endpoint, URI uri, ResponseCache.Entry cached, String... headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .uri(uri)
                 .headers(headers)
-                .GET()
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                .timeout(getTimeout(endpoint))
+                .GET();
+        if (COMPRESSION) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+        if (cached != null) {
+            if (cached.etag() != null) {
+                builder.header("If-None-Match", cached.etag());
+            }
+            if (cached.lastModified() != null) {
+                builder.header("If-Modified-Since", cached.lastModified());
+            }
+        }
+        return builder.build();
+    }
 
+    
+    private Object handleGetResponse(String endpoint, String key, ResponseCache.Entry cached, HttpResponse<?> response,
+            InputStream body, BodyParser<?> parser) throws IOException {
         log("Status Code: '{}'", response.statusCode());
-        log("Response Body: '{}'", response.body());
+        Metrics.UPSTREAM_RESPONSES.inc(endpoint, Integer.toString(response.statusCode()));
         
-        return response.body();
+        if (response.statusCode() == 304 && cached != null) {
+            return responseCache.revalidated(key, cached, response.headers()).value();
+        }
+        if (response.statusCode() != 200) {
+            throw new UpstreamException(response.uri(), response.statusCode());
+        }
+
+        CountingInputStream wireBody = new CountingInputStream(body);
+        CountingInputStream decodedBody = new CountingInputStream(decode(wireBody, response.headers().firstValue("Content-Encoding").orElse(null)));
+        // Parsers close their input when done; the rest of it, e.g. the gzip trailer, is then read
+        // so its checksum is verified and the counts are complete
+        Object value = parser.parse(new FilterInputStream(decodedBody) {
+            @Override
+            public void close() {
+            }
+        });
+        decodedBody.transferTo(OutputStream.nullOutputStream());
+
+        log("Response Body: '{}' bytes, '{}' decoded", wireBody.getCount(), decodedBody.getCount());
+        Metrics.UPSTREAM_RECEIVED_BYTES.add(wireBody.getCount(), endpoint);
+        Metrics.UPSTREAM_DECODED_BYTES.add(decodedBody.getCount(), endpoint);
+        
+        responseCache.put(key, value, decodedBody.getCount(), response.headers());
+        return value;
+    }
+
+
+    /**
+     * Decompress a body as it is read, according to its {@code Content-Encoding}.
+     *
+     * @throws IOException if the encoding is not one we ask for
+     */
+    static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        String encoding = contentEncoding == null ? "identity" : contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+        switch (encoding) {
+            case "identity", "":
+                return body;
+            case "gzip", "x-gzip":
+                return new GZIPInputStream(body, DECODE_BUFFER_SIZE);
+            case "deflate":
+                // Should be zlib wrapped, but some servers send raw deflate data: a zlib stream starts
+                // with a header whose first byte says deflate (low nibble 8) and whose first two bytes are a multiple of 31
+                BufferedInputStream buffered = new BufferedInputStream(body, DECODE_BUFFER_SIZE);
+                buffered.mark(2);
+                int cmf = buffered.read();
+                int flg = buffered.read();
+                buffered.reset();
+                boolean zlib = cmf >= 0 && flg >= 0 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+                return new InflaterInputStream(buffered, new Inflater(!zlib), DECODE_BUFFER_SIZE);
+            default:
+                throw new IOException("Unsupported Content-Encoding '" + encoding + "'");
+        }
+    }
+
+    
+    /**
+     * Cache and coalescing key of a URI: normalized path, lower case scheme and host.
+     */
+    static String normalize(URI uri) {
+        URI normalized = uri.normalize();
+        String scheme = normalized.getScheme() == null ? "" : normalized.getScheme().toLowerCase(Locale.ENGLISH);
+        String authority = normalized.getRawAuthority() == null ? "" : normalized.getRawAuthority().toLowerCase(Locale.ENGLISH);
+        String query = normalized.getRawQuery() == null ? "" : "?" + normalized.getRawQuery();
+        return scheme + "://" + authority + normalized.getRawPath() + query;
+    }
+
+    
+    /**
+     * @return the cache shared by all GET requests, e.g. to read its hit/miss counters
+     */
+    public static ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    
+    /**
+     * @return the scheduler that refreshes popular cache entries before they expire
+     */
+    public static RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
+    
+    /**
+     * @return the GET coalescer, e.g. to read how many requests were coalesced
+     */
+    public static SingleFlight<String, Object> getSingleFlight() {
+        return singleFlight;
     }
 
     
@@ -0,0 +1,65 @@
+package com.metricool.mcp.weather.utils;
+
+
+/**
+ * Token bucket rate limiter: {@code ratePerSecond} tokens are added per second, up to {@code burst}.
+ *
+ * Not thread safe, callers synchronize.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        if (now < pausedUntil) {
+            return pausedUntil - now;
+        }
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+
+    /**
+     * Give back a token that was taken but not used.
+     */
+    public void refund() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+
+
+    /**
+     * Hand out no tokens for a while, e.g. after the upstream sent {@code Retry-After}. Tokens
+     * that would have been added meanwhile are lost, so requests resume at the base rate.
+     */
+    public void pause(long nanos) {
+        long now = System.nanoTime();
+        pausedUntil = Math.max(pausedUntil, now + nanos);
+        tokens = 0;
+        refilledAt = pausedUntil;
+    }
+
+}
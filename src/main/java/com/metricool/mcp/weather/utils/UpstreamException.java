@@ -0,0 +1,27 @@
+package com.metricool.mcp.weather.utils;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * The upstream answered with an unexpected HTTP status.
+ */
+public class UpstreamException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+
+    public UpstreamException(URI uri, int statusCode) {
+        super("HTTP " + statusCode + " from " + uri);
+        this.statusCode = statusCode;
+    }
+
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+}
@@ -37,8 +37,8 @@ import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
  */
 public class McpClientWeatherTest {
 
-    // IMPORTANT: Replace with the actual path to your MCP Java Server JAR
-    static final String JAVA = "/Library/Java/JavaVirtualMachines/temurin-17.jdk/Contents/Home/bin/java";
+    // The server runs on the same Java as the tests
+    static final String JAVA = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
     static final String MCP_SERVER_JAR_NAME = "target/mcp-weather-server.jar";
     
     static final Boolean isServerStdio = true;
@@ -0,0 +1,73 @@
+package com.metricool.mcp.weather.alerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+
+
+/**
+ * Diff updates and lookups of the alert index.
+ */
+public class AlertIndexTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.now();
+
+    private static Alert.Feature alert(String id, String severity, int sentHoursAgo, int expiresInHours, String... zones) {
+        return new Alert.Feature(new Alert.Properties("Event " + id, "Area " + id, severity, "Description", "Instruction",
+                id, NOW.minusHours(sentHoursAgo).toString(), NOW.plusHours(expiresInHours).toString(),
+                new Alert.Geocode(List.of(zones))));
+    }
+
+    private static List<String> ids(Alert alert) {
+        return alert.features().stream().map(f -> f.properties().id()).toList();
+    }
+
+
+    @Test
+    public void indexesByStateZoneAndSeverityNewestFirst() {
+        AlertIndex index = new AlertIndex();
+        index.apply(List.of(
+                alert("a", "Minor", 3, 12, "NYZ072", "NJZ006"),
+                alert("b", "Severe", 1, 12, "NYZ074"),
+                alert("c", "Minor", 2, 12, "CAZ041")));
+
+        assertEquals(List.of("b", "a"), ids(index.byState("NY")));
+        assertEquals(List.of("a"), ids(index.byState("nj")));
+        assertEquals(List.of("b"), ids(index.byZone("NYZ074")));
+        assertEquals(List.of("c", "a"), ids(index.bySeverity("Minor")));
+        assertTrue(index.byState("TX").features().isEmpty());
+    }
+
+
+    @Test
+    public void appliesOnlyTheDifference() {
+        AlertIndex index = new AlertIndex();
+        index.apply(List.of(alert("a", "Minor", 3, 12, "NYZ072"), alert("b", "Severe", 1, 12, "CAZ041")));
+
+        AlertIndex.Diff diff = index.apply(List.of(alert("b", "Severe", 1, 12, "CAZ041"), alert("c", "Moderate", 0, 12, "NYZ074")));
+
+        assertEquals(Set.of("c"), diff.added());
+        assertEquals(Set.of("a"), diff.removed());
+        assertEquals(Set.of("NY"), diff.states());
+        assertEquals(List.of("c"), ids(index.byState("NY")));
+        assertEquals(2, index.size());
+        assertTrue(index.apply(List.of(alert("b", "Severe", 1, 12, "CAZ041"), alert("c", "Moderate", 0, 12, "NYZ074"))).isEmpty());
+    }
+
+
+    @Test
+    public void leavesOutExpiredAlerts() {
+        AlertIndex index = new AlertIndex();
+        index.apply(List.of(alert("a", "Minor", 3, -1, "NYZ072"), alert("b", "Minor", 1, 12, "NYZ074")));
+
+        assertEquals(List.of("b"), ids(index.byState("NY")));
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.metricool.mcp.weather.alerts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.metricool.mcp.weather.service.WeatherService.Alert;
+
+
+/**
+ * A failing listener does not keep the others from being told, nor fail the poll.
+ */
+public class AlertIngestorTest {
+
+    @Test
+    public void listenerFailureDoesNotFailThePoll() {
+        OffsetDateTime now = OffsetDateTime.now();
+        Alert alert = new Alert(List.of(new Alert.Feature(new Alert.Properties("Event", "Area", "Minor", "Description",
+                "Instruction", "a", now.toString(), now.plusHours(1).toString(), new Alert.Geocode(List.of("NYZ072"))))));
+        AlertIngestor ingestor = new AlertIngestor(() -> alert, 60_000, 60_000);
+        List<AlertIndex.Diff> told = new ArrayList<>();
+        ingestor.addListener(diff -> {
+            throw new IllegalStateException("listener bug");
+        });
+        ingestor.addListener(told::add);
+
+        ingestor.poll();
+
+        assertTrue(ingestor.isFresh());
+        assertEquals(1, told.size());
+        assertEquals(1, ingestor.getIndex().size());
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.metricool.mcp.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Locations resolve to the grid cell whose polygon contains them, not just its bounding box.
+ */
+public class GridCellIndexTest {
+
+    // Two neighboring cells of the rotated NWS grid, as in the forecast geometry
+    private static final double[] SEW_125_68 = {-122.3436, 47.6151, -122.3479, 47.5929, -122.3151, 47.5899,
+            -122.3108, 47.6121, -122.3436, 47.6151};
+    private static final double[] SEW_126_68 = {-122.3108, 47.6121, -122.3151, 47.5899, -122.2823, 47.5869,
+            -122.2780, 47.6091, -122.3108, 47.6121};
+
+
+    @Test
+    public void findsTheCellContainingTheLocation() {
+        GridCellIndex index = new GridCellIndex(100);
+        index.add(SEW_125_68, "SEW/125,68");
+        index.add(SEW_126_68, "SEW/126,68");
+
+        assertEquals("SEW/125,68", index.find(47.6062, -122.3321));
+        assertEquals("SEW/125,68", index.find(47.60618, -122.33207));
+        assertEquals("SEW/126,68", index.find(47.6000, -122.2950));
+        // Inside the bounding box of SEW/125,68, but across the slanted edge into SEW/126,68
+        assertEquals("SEW/126,68", index.find(47.5905, -122.3120));
+        assertNull(index.find(47.7, -122.3321));
+    }
+
+
+    @Test
+    public void clearsWhenFull() {
+        GridCellIndex index = new GridCellIndex(1);
+        index.add(SEW_125_68, "SEW/125,68");
+        index.add(SEW_126_68, "SEW/126,68");
+
+        assertEquals(1, index.size());
+        assertNull(index.find(47.6062, -122.3321));
+        assertEquals("SEW/126,68", index.find(47.6000, -122.2950));
+    }
+
+}
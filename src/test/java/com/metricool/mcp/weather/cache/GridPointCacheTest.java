@@ -0,0 +1,51 @@
+package com.metricool.mcp.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * The grid point file is written off the request path, and bounded.
+ */
+public class GridPointCacheTest {
+
+    @TempDir
+    Path dir;
+
+
+    @Test
+    public void writesFileOnFlushOnly() {
+        Path file = dir.resolve("gridpoints.properties");
+        GridPointCache cache = new GridPointCache(0.01, 100, 60_000, file.toString(), 100, 0);
+        cache.put(47.61, -122.33, "https://api.weather.gov/gridpoints/SEW/125,68/forecast");
+        assertFalse(Files.exists(file));
+
+        cache.stop();
+        GridPointCache restarted = new GridPointCache(0.01, 100, 60_000, file.toString(), 100, 0);
+        assertEquals("https://api.weather.gov/gridpoints/SEW/125,68/forecast", restarted.get(47.61, -122.33));
+    }
+
+
+    @Test
+    public void keepsMostRecentEntriesInFile() {
+        Path file = dir.resolve("gridpoints.properties");
+        GridPointCache cache = new GridPointCache(0.01, 100, 60_000, file.toString(), 2, 0);
+        cache.put(1, 1, "one");
+        cache.put(2, 2, "two");
+        cache.put(3, 3, "three");
+        cache.stop();
+
+        GridPointCache restarted = new GridPointCache(0.01, 100, 60_000, file.toString(), 2, 0);
+        assertNull(restarted.get(1, 1));
+        assertEquals("two", restarted.get(2, 2));
+        assertEquals("three", restarted.get(3, 3));
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.metricool.mcp.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Only keys that are both popular and about to expire are refreshed.
+ */
+public class RefreshSchedulerTest {
+
+    private static HttpHeaders maxAge(int seconds) {
+        return HttpHeaders.of(Map.of("Cache-Control", List.of("max-age=" + seconds)), (name, value) -> true);
+    }
+
+
+    @Test
+    public void refreshesHotKeysAboutToExpire() {
+        ResponseCache cache = new ResponseCache(1024);
+        cache.put("hot-expiring", "body", 4, maxAge(10));
+        cache.put("hot-fresh", "body", 4, maxAge(3600));
+        cache.put("cold-expiring", "body", 4, maxAge(10));
+
+        RefreshScheduler scheduler = new RefreshScheduler(cache, 3_600_000, 30_000, 3);
+        scheduler.start();
+        try {
+            AtomicInteger hotExpiring = new AtomicInteger();
+            AtomicInteger hotFresh = new AtomicInteger();
+            AtomicInteger coldExpiring = new AtomicInteger();
+            for (int i = 0; i < 4; i++) {
+                scheduler.recordAccess("hot-expiring", hotExpiring::incrementAndGet);
+                scheduler.recordAccess("hot-fresh", hotFresh::incrementAndGet);
+            }
+            scheduler.recordAccess("cold-expiring", coldExpiring::incrementAndGet);
+
+            scheduler.scan();
+            assertEquals(1, hotExpiring.get());
+            assertEquals(0, hotFresh.get());
+            assertEquals(0, coldExpiring.get());
+
+            // Counts decay: 4 accesses are halved to 2, below the threshold without new accesses
+            scheduler.scan();
+            assertEquals(1, hotExpiring.get());
+            assertEquals(1, scheduler.getRefreshes());
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.metricool.mcp.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpHeaders;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Freshness, revalidation and eviction rules of the upstream response cache.
+ */
+public class ResponseCacheTest {
+
+    private static HttpHeaders headers(String... nameValues) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < nameValues.length; i += 2) {
+            map.put(nameValues[i], List.of(nameValues[i + 1]));
+        }
+        return HttpHeaders.of(map, (name, value) -> true);
+    }
+
+
+    @Test
+    public void freshnessHonorsMaxAgeAndAge() {
+        assertEquals(60_000, ResponseCache.freshnessMillis(headers("Cache-Control", "public, max-age=90", "Age", "30")));
+        assertEquals(10_000, ResponseCache.freshnessMillis(headers("Cache-Control", "max-age=90, s-maxage=10")));
+        assertEquals(0, ResponseCache.freshnessMillis(headers("Cache-Control", "no-cache, max-age=90")));
+        assertEquals(90_000, ResponseCache.freshnessMillis(headers("Cache-Control", "max-age=90", "Age", "soon")));
+    }
+
+
+    @Test
+    public void freshnessFallsBackToExpires() {
+        assertEquals(120_000, ResponseCache.freshnessMillis(headers(
+                "Date", "Sun, 18 Oct 2026 12:00:00 GMT",
+                "Expires", "Sun, 18 Oct 2026 12:02:00 GMT")));
+        assertEquals(0, ResponseCache.freshnessMillis(headers("Expires", "0")));
+    }
+
+
+    @Test
+    public void staleEntriesAreKeptOnlyWithValidators() {
+        ResponseCache cache = new ResponseCache(1024);
+        cache.put("a", "body", 4, headers("Cache-Control", "max-age=0", "ETag", "\"v1\""));
+        cache.put("b", "body", 4, headers("Cache-Control", "max-age=0"));
+        cache.put("c", "body", 4, headers("Cache-Control", "no-store, max-age=60"));
+
+        ResponseCache.Entry a = cache.get("a");
+        assertNotNull(a);
+        assertFalse(a.isFresh());
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+
+        ResponseCache.Entry revalidated = cache.revalidated("a", a, headers("Cache-Control", "max-age=60"));
+        assertTrue(revalidated.isFresh());
+        assertEquals("\"v1\"", revalidated.etag());
+        assertEquals(1, cache.getRevalidations());
+    }
+
+
+    @Test
+    public void staleWhileRevalidateKeepsEntriesServable() {
+        ResponseCache cache = new ResponseCache(1024, 60_000);
+        cache.put("a", "body", 4, headers("Cache-Control", "max-age=0"));
+        cache.put("b", "body", 4, headers("Cache-Control", "max-age=0, must-revalidate"));
+        cache.put("c", "body", 4, headers("Cache-Control", "max-age=0, stale-while-revalidate=0"));
+
+        ResponseCache.Entry a = cache.get("a");
+        assertNotNull(a);
+        assertFalse(a.isFresh());
+        assertTrue(a.isStaleWhileRevalidate());
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+    }
+
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        ResponseCache cache = new ResponseCache(10);
+        cache.put("a", "aaaa", 4, headers("Cache-Control", "max-age=60"));
+        cache.put("b", "bbbb", 4, headers("Cache-Control", "max-age=60"));
+        cache.get("a");
+        cache.put("c", "cccc", 4, headers("Cache-Control", "max-age=60"));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(8, cache.getTotalBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+
+
+    @Test
+    public void peekDoesNotChangeTheEvictionOrder() {
+        ResponseCache cache = new ResponseCache(10);
+        cache.put("a", "aaaa", 4, headers("Cache-Control", "max-age=60"));
+        cache.put("b", "bbbb", 4, headers("Cache-Control", "max-age=60"));
+        assertNotNull(cache.peek("a"));
+        cache.put("c", "cccc", 4, headers("Cache-Control", "max-age=60"));
+
+        assertNull(cache.peek("a"));
+        assertNotNull(cache.peek("b"));
+        assertNotNull(cache.peek("c"));
+    }
+
+}
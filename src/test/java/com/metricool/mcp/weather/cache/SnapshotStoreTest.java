@@ -0,0 +1,170 @@
+package com.metricool.mcp.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.metricool.mcp.weather.service.WeatherService.Points;
+
+
+/**
+ * Entries written to a snapshot are found again, lazily, by a new process.
+ */
+public class SnapshotStoreTest {
+
+    private static final List<Class<?>> TYPES = List.of(Points.class);
+
+    @TempDir
+    Path dir;
+
+
+    private static HttpHeaders headers(String... nameValues) {
+        return HttpHeaders.of(Map.of(nameValues[0], List.of(nameValues[1]), nameValues[2], List.of(nameValues[3])),
+                (name, value) -> true);
+    }
+
+
+    private static Points points(String forecastUrl) {
+        return new Points(new Points.Props(forecastUrl));
+    }
+
+
+    @Test
+    public void restartsWarm() {
+        Path file = dir.resolve("snapshot.bin");
+        GridPointCache gridPoints = new GridPointCache(0.01, 100, 60_000, null);
+        ResponseCache responses = new ResponseCache(1 << 20);
+        gridPoints.put(47.61, -122.33, "https://api.weather.gov/gridpoints/SEW/125,68/forecast");
+        responses.put("/points/47.61,-122.33", points("https://api.weather.gov/gridpoints/SEW/125,68/forecast"), 100,
+                headers("Cache-Control", "max-age=60", "ETag", "\"v1\""));
+        responses.put("/other", "not snapshotted", 10, headers("Cache-Control", "max-age=60", "ETag", "\"v1\""));
+
+        SnapshotStore writer = new SnapshotStore(file, 0, false, TYPES);
+        writer.start(gridPoints, responses);
+        writer.stop();
+        assertEquals(2, writer.size());
+
+        SnapshotStore reader = new SnapshotStore(file, 0, true, TYPES);
+        GridPointCache restartedGridPoints = new GridPointCache(0.01, 100, 60_000, null);
+        ResponseCache restartedResponses = new ResponseCache(1 << 20);
+        restartedGridPoints.setSnapshot(reader);
+        restartedResponses.setSnapshot(reader);
+
+        assertEquals("https://api.weather.gov/gridpoints/SEW/125,68/forecast", restartedGridPoints.get(47.61, -122.33));
+        assertNull(restartedGridPoints.get(40.71, -74.01));
+        ResponseCache.Entry entry = restartedResponses.get("/points/47.61,-122.33");
+        assertNotNull(entry);
+        assertEquals(points("https://api.weather.gov/gridpoints/SEW/125,68/forecast"), entry.value());
+        assertEquals("\"v1\"", entry.etag());
+        assertNull(entry.lastModified());
+        assertEquals(1, restartedResponses.size());
+        assertNull(restartedResponses.get("/other"));
+    }
+
+
+    @Test
+    public void keepsUsableEntriesOfPreviousSnapshot() {
+        Path file = dir.resolve("snapshot.bin");
+        ResponseCache first = new ResponseCache(1 << 20);
+        first.put("/points/1,1", points("one"), 10, headers("Cache-Control", "max-age=60", "Age", "0"));
+        first.put("/points/2,2", points("two"), 10, headers("Cache-Control", "max-age=0", "Age", "0"));
+        SnapshotStore store = new SnapshotStore(file, 0, false, TYPES);
+        store.start(new GridPointCache(0.01, 100, 60_000, null), first);
+        store.stop();
+
+        // Another process with other entries writes the same file
+        ResponseCache second = new ResponseCache(1 << 20);
+        second.put("/points/3,3", points("three"), 10, headers("Cache-Control", "max-age=60", "Age", "0"));
+        SnapshotStore other = new SnapshotStore(file, 0, false, TYPES);
+        other.start(new GridPointCache(0.01, 100, 60_000, null), second);
+        other.stop();
+
+        SnapshotStore reader = new SnapshotStore(file, 0, true, TYPES);
+        assertEquals(2, reader.size());
+        assertEquals(points("one"), reader.response("/points/1,1").value());
+        assertEquals(points("three"), reader.response("/points/3,3").value());
+        // Expired without validators
+        assertNull(reader.response("/points/2,2"));
+    }
+
+
+    @Test
+    public void dropsLongExpiredEntriesAndCapsSize() throws InterruptedException {
+        Path file = dir.resolve("snapshot.bin");
+        ResponseCache first = new ResponseCache(1 << 20);
+        first.put("/points/1,1", points("one"), 10, headers("Cache-Control", "max-age=0", "ETag", "\"v1\""));
+        first.put("/points/2,2", points("two"), 10, headers("Cache-Control", "max-age=60", "ETag", "\"v1\""));
+        SnapshotStore store = new SnapshotStore(file, 0, false, TYPES, 3600_000, 1 << 20);
+        store.start(new GridPointCache(0.01, 100, 60_000, null), first);
+        store.stop();
+        assertEquals(2, store.size());
+
+        // Expired for longer than the max stale time: neither read nor merged into the next snapshot
+        Thread.sleep(100);
+        SnapshotStore rewriter = new SnapshotStore(file, 0, false, TYPES, 50, 1 << 20);
+        assertNull(rewriter.response("/points/1,1"));
+        rewriter.start(new GridPointCache(0.01, 100, 60_000, null), new ResponseCache(1 << 20));
+        rewriter.stop();
+        assertEquals(1, rewriter.size());
+        assertNotNull(rewriter.response("/points/2,2"));
+
+        // Merged entries count towards the cap too: the least recently used ones are dropped
+        ResponseCache second = new ResponseCache(1 << 20);
+        for (int i = 0; i < 100; i++) {
+            second.put("/points/3," + i, points("three " + i), 10, headers("Cache-Control", "max-age=60", "Age", "0"));
+        }
+        SnapshotStore capped = new SnapshotStore(file, 0, false, TYPES, 50, 1000);
+        capped.start(new GridPointCache(0.01, 100, 60_000, null), second);
+        capped.stop();
+        assertTrue(capped.size() < 20, "Entries: " + capped.size());
+        assertNotNull(capped.response("/points/3,99"));
+        assertNull(capped.response("/points/3,0"));
+        assertNull(capped.response("/points/2,2"));
+    }
+
+
+    @Test
+    public void ignoresMissingOrInvalidFile() throws IOException {
+        Path file = dir.resolve("snapshot.bin");
+        assertNull(new SnapshotStore(file, 0, true, TYPES).response("/points/1,1"));
+        Files.writeString(file, "not a snapshot");
+        SnapshotStore store = new SnapshotStore(file, 0, true, TYPES);
+        assertEquals(0, store.size());
+        assertNull(store.gridPoint("1.0000,1.0000"));
+    }
+
+
+
+    @Test
+    public void ignoresCorruptEntries() throws IOException {
+        Path file = dir.resolve("snapshot.bin");
+        GridPointCache gridPoints = new GridPointCache(0.01, 100, 60_000, null);
+        gridPoints.put(47.61, -122.33, "https://api.weather.gov/gridpoints/SEW/125,68/forecast");
+        SnapshotStore writer = new SnapshotStore(file, 0, false, TYPES);
+        writer.start(gridPoints, new ResponseCache(1 << 20));
+        writer.stop();
+
+        // Point the only index entry past the end of the file
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 20 + 8);
+        }
+        GridPointCache restartedGridPoints = new GridPointCache(0.01, 100, 60_000, null);
+        restartedGridPoints.setSnapshot(new SnapshotStore(file, 0, true, TYPES));
+        assertNull(restartedGridPoints.get(47.61, -122.33));
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.metricool.mcp.weather.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.metricool.mcp.weather.cache.ResponseCache;
+import com.metricool.mcp.weather.service.NwsParser;
+import com.metricool.mcp.weather.service.WeatherService;
+import com.metricool.mcp.weather.service.WeatherService.Forecast;
+import com.metricool.mcp.weather.upstream.NwsStandInServer;
+import com.metricool.mcp.weather.utils.RestClient;
+
+
+/**
+ * Two replicas and the stand-in upstream: misses go to the owner of the URI, are revalidated
+ * through it, and are fetched locally when the owner is down or slow.
+ */
+public class ClusterTest {
+
+    private static final String SECRET = "0123456789abcdef";
+    private static final String[] HEADERS = {"Accept", "application/geo+json"};
+
+    /**
+     * What a peer answers, told apart from the forecast of the stand-in by having no periods.
+     */
+    private static final Forecast PEER_FORECAST = new Forecast(new Forecast.Props(List.of()));
+
+    private NwsStandInServer standIn;
+    private String upstreamUrl;
+    private Replica local;
+    private Replica peer;
+    private Cluster cluster;
+    private RestClient client;
+
+
+    /**
+     * A replica answering its peers with {@link #PEER_FORECAST}, as an already stale entry with an ETag.
+     */
+    private static final class Replica extends WeatherService {
+
+        final AtomicInteger fetches = new AtomicInteger();
+        volatile long delayMillis;
+        Server server;
+        String url;
+
+        Replica() {
+            super(null);
+        }
+
+        @Override
+        public ResponseCache.Entry fetchForPeer(String endpoint, String path) throws InterruptedException {
+            fetches.incrementAndGet();
+            Thread.sleep(delayMillis);
+            long now = System.currentTimeMillis();
+            return new ResponseCache.Entry(PEER_FORECAST, 100, "\"v1\"", null, now, now, now);
+        }
+
+        void listen() throws Exception {
+            server = new Server();
+            ServerConnector connector = new ServerConnector(server);
+            server.addConnector(connector);
+            ServletContextHandler context = new ServletContextHandler();
+            context.addServlet(new ServletHolder(new PeerServlet(this, SECRET)), Cluster.FETCH_PATH);
+            server.setHandler(context);
+            server.start();
+            url = "http://localhost:" + connector.getLocalPort();
+        }
+    }
+
+
+    @BeforeEach
+    public void start() throws Exception {
+        standIn = new NwsStandInServer(0, 0, 0, 0, "max-age=60", false);
+        upstreamUrl = standIn.start();
+        local = new Replica();
+        local.listen();
+        peer = new Replica();
+        peer.listen();
+        cluster = new Cluster(local.url, List.of(local.url, peer.url), upstreamUrl, SECRET, 128, Duration.ofMillis(500), 60_000);
+        client = new RestClient(cluster);
+    }
+
+
+    @AfterEach
+    public void stop() throws Exception {
+        peer.server.stop();
+        local.server.stop();
+        standIn.stop();
+    }
+
+
+    /**
+     * @return the forecast URIs of the stand-in owned by the peer, while it is up
+     */
+    private List<URI> ownedByPeer(int count) {
+        List<URI> owned = new ArrayList<>();
+        for (int x = 0; owned.size() < count; x++) {
+            URI uri = URI.create(upstreamUrl + "/gridpoints/SEW/" + x + ",1/forecast");
+            if (peer.url.equals(cluster.route(uri.toString(), uri))) {
+                owned.add(uri);
+            }
+        }
+        return owned;
+    }
+
+
+    private Forecast get(URI uri) throws IOException, InterruptedException {
+        return client.doGet(WeatherService.FORECAST_ENDPOINT, uri, NwsParser::parseForecast, HEADERS);
+    }
+
+
+    @Test
+    public void fetchesFromTheOwnerAndRevalidatesThroughIt() throws Exception {
+        URI uri = ownedByPeer(1).get(0);
+        Forecast first = get(uri);
+        assertEquals(PEER_FORECAST, first);
+        assertEquals(1, peer.fetches.get());
+        assertEquals(0, local.fetches.get());
+
+        // Stale with an ETag: revalidated with the owner, which answers 304
+        long revalidations = RestClient.getResponseCache().getRevalidations();
+        assertSame(first, get(uri));
+        assertEquals(2, peer.fetches.get());
+        assertEquals(revalidations + 1, RestClient.getResponseCache().getRevalidations());
+    }
+
+
+    @Test
+    public void rejectsRequestsWithoutTheSecret() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI fetchUri = cluster.fetchUri(peer.url, WeatherService.FORECAST_ENDPOINT, ownedByPeer(1).get(0));
+
+        for (String secret : new String[] {null, "wrong", SECRET}) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(fetchUri);
+            if (secret != null) {
+                request.header(Cluster.SECRET_HEADER, secret);
+            }
+            int status = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            assertEquals(SECRET.equals(secret) ? 200 : 403, status);
+        }
+        assertEquals(1, peer.fetches.get());
+    }
+
+
+    @Test
+    public void fetchesLocallyWhenThePeerIsDown() throws Exception {
+        List<URI> owned = ownedByPeer(2);
+        peer.server.stop();
+
+        assertEquals(14, get(owned.get(0)).properties().periods().size());
+        // The connection was refused: the peer is skipped until the retry delay is over
+        assertNull(cluster.route(owned.get(1).toString(), owned.get(1)));
+        assertEquals(0, peer.fetches.get());
+    }
+
+
+    @Test
+    public void fetchesLocallyWithoutMarkingASlowPeerDown() throws Exception {
+        List<URI> owned = ownedByPeer(2);
+        peer.delayMillis = 1000;
+
+        assertEquals(14, get(owned.get(0)).properties().periods().size());
+        assertEquals(1, peer.fetches.get());
+        assertEquals(peer.url, cluster.route(owned.get(1).toString(), owned.get(1)));
+    }
+
+
+    @Test
+    public void onlyConnectFailuresMarkAPeerDown() {
+        URI uri = ownedByPeer(1).get(0);
+        cluster.onFailure(peer.url, new HttpTimeoutException("request timed out"));
+        assertNotNull(cluster.route(uri.toString(), uri));
+        cluster.onFailure(peer.url, new HttpConnectTimeoutException("connect timed out"));
+        assertNull(cluster.route(uri.toString(), uri));
+
+        cluster.onAnswer(peer.url, "hit");
+        assertEquals(peer.url, cluster.route(uri.toString(), uri));
+    }
+
+}
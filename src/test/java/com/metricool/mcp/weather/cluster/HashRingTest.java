@@ -0,0 +1,63 @@
+package com.metricool.mcp.weather.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Keys spread evenly over the nodes, and removing a node only moves the keys it owned.
+ */
+public class HashRingTest {
+
+    private static final List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+    private static final int KEYS = 30_000;
+
+
+    @Test
+    public void keysSpreadEvenly() {
+        HashRing ring = new HashRing(NODES, 128);
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owned.merge(ring.owner(key(i)), 1, Integer::sum);
+        }
+        assertEquals(NODES.size(), owned.size());
+        for (int count : owned.values()) {
+            assertTrue(Math.abs(count - KEYS / NODES.size()) < KEYS / NODES.size() / 5, "Uneven spread: " + owned);
+        }
+    }
+
+
+    @Test
+    public void ownerOnlyDependsOnNodes() {
+        HashRing ring = new HashRing(NODES, 128);
+        HashRing other = new HashRing(List.of("http://c:8080", "http://a:8080", "http://b:8080"), 128);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.owner(key(i)), other.owner(key(i)));
+        }
+    }
+
+
+    @Test
+    public void removingNodeOnlyMovesItsKeys() {
+        HashRing ring = new HashRing(NODES, 128);
+        HashRing smaller = new HashRing(List.of("http://a:8080", "http://c:8080"), 128);
+        for (int i = 0; i < KEYS; i++) {
+            String owner = ring.owner(key(i));
+            if (!owner.equals("http://b:8080")) {
+                assertEquals(owner, smaller.owner(key(i)));
+            }
+        }
+    }
+
+
+    private static String key(int i) {
+        return "https://api.weather.gov/points/" + (30 + i % 200 * 0.0625) + "," + (-120 + i / 200 * 0.0625);
+    }
+
+}
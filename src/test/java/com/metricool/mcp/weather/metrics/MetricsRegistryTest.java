@@ -0,0 +1,68 @@
+package com.metricool.mcp.weather.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Metrics are written in the Prometheus text exposition format.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void writesCountersAndGauges() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("requests_total", "Requests by tool\\result,\nmultiline.", "tool");
+        counter.inc("forecast");
+        counter.add(2, "say \"hi\"\\\n");
+        registry.gauge("connections", "Open connections.").value().set(3);
+
+        assertEquals(List.of(
+                "# HELP connections Open connections.",
+                "# TYPE connections gauge",
+                "connections 3",
+                "# HELP requests_total Requests by tool\\\\result,\\nmultiline.",
+                "# TYPE requests_total counter"), registry.scrape().lines().toList().subList(0, 5));
+        List<String> samples = registry.scrape().lines().skip(5).sorted().toList();
+        assertEquals(List.of(
+                "requests_total{tool=\"forecast\"} 1",
+                "requests_total{tool=\"say \\\"hi\\\"\\\\\\n\"} 2"), samples);
+    }
+
+
+    @Test
+    public void writesCumulativeHistogramBuckets() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("latency_seconds", "Latency.", "endpoint");
+        histogram.observe(0.003, "points");
+        histogram.observe(0.02, "points");
+        histogram.observe(0.02, "points");
+        histogram.observe(60, "points");
+
+        List<String> lines = registry.scrape().lines().toList();
+        assertEquals("# HELP latency_seconds Latency.", lines.get(0));
+        assertEquals("# TYPE latency_seconds histogram", lines.get(1));
+        assertEquals("latency_seconds_bucket{endpoint=\"points\",le=\"0.005\"} 1", lines.get(2));
+        assertEquals("latency_seconds_bucket{endpoint=\"points\",le=\"0.01\"} 1", lines.get(3));
+        assertEquals("latency_seconds_bucket{endpoint=\"points\",le=\"0.025\"} 3", lines.get(4));
+        assertEquals("latency_seconds_bucket{endpoint=\"points\",le=\"30.0\"} 3", lines.get(1 + Histogram.DEFAULT_BUCKETS.length));
+        assertEquals("latency_seconds_bucket{endpoint=\"points\",le=\"+Inf\"} 4", lines.get(2 + Histogram.DEFAULT_BUCKETS.length));
+        assertEquals("latency_seconds_sum{endpoint=\"points\"} 60.043", lines.get(3 + Histogram.DEFAULT_BUCKETS.length));
+        assertEquals("latency_seconds_count{endpoint=\"points\"} 4", lines.get(4 + Histogram.DEFAULT_BUCKETS.length));
+        assertEquals(5 + Histogram.DEFAULT_BUCKETS.length, lines.size());
+    }
+
+
+    @Test
+    public void rejectsDuplicateNamesAndWrongLabels() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("requests_total", "Requests.", "tool");
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("requests_total", "Again."));
+        assertThrows(IllegalArgumentException.class, () -> counter.inc());
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.metricool.mcp.weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * The streaming parsers must produce the same records as plain data binding of the whole document.
+ */
+public class NwsParserTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static InputStream fixture(String name) {
+        return NwsParserTest.class.getClassLoader().getResourceAsStream("fixtures/" + name);
+    }
+
+
+    @Test
+    public void parsesPoints() throws IOException {
+        WeatherService.Points points = NwsParser.parsePoints(fixture("points.json"));
+        assertEquals("https://api.weather.gov/gridpoints/SEW/125,68/forecast", points.properties().forecast());
+    }
+
+
+    @Test
+    public void parsesForecastLikeDataBinding() throws IOException {
+        WeatherService.Forecast streamed = NwsParser.parseForecast(fixture("forecast.json"));
+        WeatherService.Forecast bound = objectMapper.readValue(fixture("forecast.json"), WeatherService.Forecast.class);
+
+        assertEquals(14, streamed.properties().periods().size());
+        assertEquals(bound, streamed);
+    }
+
+
+    @Test
+    public void parsesForecastGridCell() throws IOException {
+        double[][] cell = new double[1][];
+        WeatherService.Forecast forecast = NwsParser.parseForecast(fixture("forecast.json"), polygon -> cell[0] = polygon);
+
+        assertEquals(14, forecast.properties().periods().size());
+        assertArrayEquals(new double[] {-122.3436, 47.6151, -122.3479, 47.5929, -122.3151, 47.5899,
+                -122.3108, 47.6121, -122.3436, 47.6151}, cell[0]);
+    }
+
+
+    @Test
+    public void peerBodyCarriesTheGridCell() throws IOException {
+        double[][] cell = new double[2][];
+        WeatherService.Forecast forecast = NwsParser.parseForecast(fixture("forecast.json"), polygon -> cell[0] = polygon);
+        byte[] body = WeatherService.toPeerBody(forecast, cell[0]);
+
+        assertEquals(forecast, NwsParser.parseForecast(new ByteArrayInputStream(body), polygon -> cell[1] = polygon));
+        assertArrayEquals(cell[0], cell[1]);
+    }
+
+
+    @Test
+    public void parsesAlertsLikeDataBinding() throws IOException {
+        WeatherService.Alert streamed = NwsParser.parseAlerts(fixture("alerts-NY.json"));
+        WeatherService.Alert bound = objectMapper.readValue(fixture("alerts-NY.json"), WeatherService.Alert.class);
+
+        assertEquals(12, streamed.features().size());
+        assertEquals(bound, streamed);
+        assertNull(streamed.features().get(1).properties().instruction());
+        assertTrue(streamed.features().get(0).properties().description().startsWith("* WHAT..."));
+    }
+
+}
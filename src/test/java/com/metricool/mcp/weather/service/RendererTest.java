@@ -0,0 +1,103 @@
+package com.metricool.mcp.weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.metricool.mcp.weather.utils.Json;
+
+
+/**
+ * Output views of the tools: format, field selection, limits, and cached renderings.
+ */
+public class RendererTest {
+
+    private static InputStream fixture(String name) {
+        return RendererTest.class.getClassLoader().getResourceAsStream("fixtures/" + name);
+    }
+
+
+    @Test
+    public void rendersSelectedForecastFieldsAsJson() throws IOException {
+        WeatherService.Forecast forecast = NwsParser.parseForecast(fixture("forecast.json"));
+        ForecastView view = ForecastView.fromArguments(Map.of("format", "json", "fields", List.of("temperature", "name"), "periods", 2));
+
+        JsonNode periods = Json.MAPPER.readTree(Renderer.render(forecast, view)).get("periods");
+        assertEquals(2, periods.size());
+        List<String> fields = new ArrayList<>();
+        periods.get(0).fieldNames().forEachRemaining(fields::add);
+        assertEquals(List.of("name", "temperature"), fields);
+        assertEquals(forecast.properties().periods().get(0).name(), periods.get(0).get("name").asText());
+    }
+
+
+    @Test
+    public void textIsUnchangedByDefault() throws IOException {
+        WeatherService.Forecast forecast = NwsParser.parseForecast(fixture("forecast.json"));
+        assertEquals(WeatherService.formatForecast(forecast), Renderer.render(forecast, ForecastView.fromArguments(Map.of())));
+    }
+
+
+    @Test
+    public void filtersAlertsBySeverity() throws IOException {
+        WeatherService.Alert alert = NwsParser.parseAlerts(fixture("alerts-NY.json"));
+        AlertView view = AlertView.fromArguments(Map.of("format", "json", "minSeverity", "Severe"));
+
+        for (JsonNode item : Json.MAPPER.readTree(Renderer.render(alert, view)).get("alerts")) {
+            String severity = item.get("severity").asText();
+            assertTrue(severity.equals("Severe") || severity.equals("Extreme"), severity);
+            assertFalse(item.has("description"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> AlertView.fromArguments(Map.of("minSeverity", "Catastrophic")));
+        assertThrows(IllegalArgumentException.class, () -> AlertView.fromArguments(Map.of("fields", List.of("headline"))));
+    }
+
+
+    @Test
+    public void limitKeepsTheNewestAlerts() throws IOException {
+        WeatherService.Alert alert = NwsParser.parseAlerts(fixture("alerts-NY.json"));
+        List<WeatherService.Alert.Feature> features = new ArrayList<>(alert.features());
+        features.sort(Comparator.comparing(feature -> OffsetDateTime.parse(feature.properties().sent())));
+        String newest = features.get(features.size() - 1).properties().id();
+
+        AlertView view = AlertView.fromArguments(Map.of("format", "json", "fields", List.of("id", "sent"), "limit", 1));
+        JsonNode alerts = Json.MAPPER.readTree(Renderer.render(new WeatherService.Alert(features), view)).get("alerts");
+        assertEquals(1, alerts.size());
+        assertEquals(newest, alerts.get(0).get("id").asText());
+    }
+
+
+    @Test
+    public void reusesRenderingsOfTheSameResponse() throws IOException {
+        WeatherService.Forecast forecast = NwsParser.parseForecast(fixture("forecast.json"));
+        String first = Renderer.render(forecast, ForecastView.DEFAULT);
+
+        assertSame(first, Renderer.render(forecast, ForecastView.DEFAULT));
+    }
+
+
+    @Test
+    public void doesNotCacheRenderingsOfEqualResponses() throws IOException {
+        WeatherService.Alert alert = NwsParser.parseAlerts(fixture("alerts-NY.json"));
+        WeatherService.Alert copy = new WeatherService.Alert(alert.features());
+        String first = Renderer.render(alert, AlertView.DEFAULT);
+
+        assertEquals(first, Renderer.render(copy, AlertView.DEFAULT));
+        assertNotSame(first, Renderer.render(copy, AlertView.DEFAULT));
+        assertNotSame(Renderer.renderUncached(alert, AlertView.DEFAULT), Renderer.renderUncached(alert, AlertView.DEFAULT));
+    }
+}
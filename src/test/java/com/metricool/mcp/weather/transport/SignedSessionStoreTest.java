@@ -0,0 +1,83 @@
+package com.metricool.mcp.weather.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import io.modelcontextprotocol.spec.McpSchema;
+
+
+/**
+ * Session ids are only accepted as they were signed, and until they expire.
+ */
+public class SignedSessionStoreTest {
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+
+    private static SessionState state(long createdAt) {
+        return new SessionState("2024-11-05", McpSchema.ClientCapabilities.builder().build(),
+                new McpSchema.Implementation("test", "1.0"), createdAt);
+    }
+
+
+    @Test
+    public void resumesSessionOnAnyStoreWithTheSecret() {
+        SessionState state = state(System.currentTimeMillis());
+        String sessionId = new SignedSessionStore(SECRET, 60_000).create(state);
+
+        assertEquals(state, new SignedSessionStore(SECRET, 60_000).get(sessionId));
+        assertNull(new SignedSessionStore("another secret".getBytes(StandardCharsets.UTF_8), 60_000).get(sessionId));
+    }
+
+
+    @Test
+    public void rejectsExpiredSessions() {
+        SignedSessionStore store = new SignedSessionStore(SECRET, 60_000);
+        assertNotNull(store.get(store.create(state(System.currentTimeMillis() - 59_000))));
+        assertNull(store.get(store.create(state(System.currentTimeMillis() - 61_000))));
+    }
+
+
+    @Test
+    public void rejectsTamperedSessions() {
+        SignedSessionStore store = new SignedSessionStore(SECRET, 60_000);
+        String sessionId = store.create(state(System.currentTimeMillis()));
+        int dot = sessionId.indexOf('.');
+        byte[] signature = Base64.getUrlDecoder().decode(sessionId.substring(dot + 1));
+
+        // Every byte of the signature is compared, not only a prefix
+        for (int i = 0; i < signature.length; i++) {
+            byte[] tampered = signature.clone();
+            tampered[i] ^= 1;
+            assertNull(store.get(sessionId.substring(0, dot + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(tampered)));
+        }
+
+        // A payload extended by an attacker, e.g. with a later creation time, keeps the old signature
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("{\"protocolVersion\":\"2024-11-05\",\"createdAt\":" + Long.MAX_VALUE / 2 + "}").getBytes(StandardCharsets.UTF_8));
+        assertNull(store.get(forged + sessionId.substring(dot)));
+    }
+
+
+    @Test
+    public void rejectsTruncatedAndGarbageSessions() {
+        SignedSessionStore store = new SignedSessionStore(SECRET, 60_000);
+        String sessionId = store.create(state(System.currentTimeMillis()));
+
+        assertNull(store.get(sessionId.substring(0, sessionId.length() - 1)));
+        assertNull(store.get(sessionId.substring(0, sessionId.indexOf('.') + 1)));
+        assertNull(store.get(sessionId.substring(0, sessionId.indexOf('.'))));
+        assertNull(store.get(sessionId.substring(1)));
+        assertNull(store.get(""));
+        assertNull(store.get("."));
+        assertNull(store.get("not base64!.%%%"));
+        assertNull(store.get(Base64.getUrlEncoder().encodeToString("not json".getBytes(StandardCharsets.UTF_8)) + ".AAAA"));
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.metricool.mcp.weather.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.metricool.mcp.weather.utils.Json;
+
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.spec.McpSchema;
+
+
+/**
+ * Sessions of the streamable HTTP transport are created by initialize, resumed by their id, and
+ * unknown or expired ids are answered with a 404 so the client initializes again.
+ */
+public class StreamableHttpServerTransportProviderTest {
+
+    private static final String INITIALIZE = """
+            {"jsonrpc":"2.0","id":1,"method":"initialize","params":{"protocolVersion":"2024-11-05",
+             "capabilities":{},"clientInfo":{"name":"test","version":"1.0"}}}""";
+    private static final String PING = "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"ping\"}";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Server server;
+    private McpSyncServer mcpServer;
+    private URI endpoint;
+
+
+    private void start(SessionStore sessionStore) throws Exception {
+        StreamableHttpServerTransportProvider transport = new StreamableHttpServerTransportProvider(Json.MAPPER, sessionStore);
+        mcpServer = McpServer.sync(transport)
+                .serverInfo("test", "1.0")
+                .capabilities(McpSchema.ServerCapabilities.builder().build())
+                .build();
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(transport), "/mcp");
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(context);
+        server.start();
+        endpoint = URI.create("http://localhost:" + connector.getLocalPort() + "/mcp");
+    }
+
+
+    @AfterEach
+    public void stop() throws Exception {
+        if (mcpServer != null) {
+            mcpServer.closeGracefully();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+
+    private HttpResponse<String> post(String body, String sessionId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+        if (sessionId != null) {
+            request.header(StreamableHttpServerTransportProvider.SESSION_ID_HEADER, sessionId);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+
+    @Test
+    public void createsAndResumesSessions() throws Exception {
+        start(new InMemorySessionStore(100, 60_000));
+
+        HttpResponse<String> initialized = post(INITIALIZE, null);
+        assertEquals(200, initialized.statusCode());
+        String sessionId = initialized.headers().firstValue(StreamableHttpServerTransportProvider.SESSION_ID_HEADER).orElse(null);
+        assertNotNull(sessionId);
+        assertEquals("test", Json.MAPPER.readTree(initialized.body()).at("/result/serverInfo/name").asText());
+
+        assertEquals(202, post("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}", sessionId).statusCode());
+        HttpResponse<String> ping = post(PING, sessionId);
+        assertEquals(200, ping.statusCode());
+        JsonNode pong = Json.MAPPER.readTree(ping.body());
+        assertEquals(2, pong.get("id").asInt());
+        assertTrue(pong.has("result"));
+    }
+
+
+    @Test
+    public void rejectsUnknownAndExpiredSessions() throws Exception {
+        start(new SignedSessionStore("0123456789abcdef".getBytes(StandardCharsets.UTF_8), 100));
+
+        assertEquals(400, post(PING, null).statusCode());
+        assertEquals(404, post(PING, "unknown").statusCode());
+
+        String sessionId = post(INITIALIZE, null).headers()
+                .firstValue(StreamableHttpServerTransportProvider.SESSION_ID_HEADER).orElseThrow();
+        assertEquals(200, post(PING, sessionId).statusCode());
+        Thread.sleep(200);
+        HttpResponse<String> expired = post(PING, sessionId);
+        assertEquals(404, expired.statusCode());
+        assertEquals(McpSchema.ErrorCodes.INVALID_REQUEST, Json.MAPPER.readTree(expired.body()).at("/error/code").asInt());
+    }
+
+
+    @Test
+    public void forgetsDeletedSessions() throws Exception {
+        start(new InMemorySessionStore(100, 60_000));
+        String sessionId = post(INITIALIZE, null).headers()
+                .firstValue(StreamableHttpServerTransportProvider.SESSION_ID_HEADER).orElseThrow();
+
+        HttpResponse<Void> deleted = client.send(HttpRequest.newBuilder(endpoint)
+                .header(StreamableHttpServerTransportProvider.SESSION_ID_HEADER, sessionId).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertEquals(204, deleted.statusCode());
+        assertEquals(404, post(PING, sessionId).statusCode());
+    }
+
+
+
+    @Test
+    public void rejectsInvalidInitializeParams() throws Exception {
+        start(new InMemorySessionStore(100, 60_000));
+
+        for (String params : List.of("", ",\"params\":{\"protocolVersion\":[]}")) {
+            HttpResponse<String> rejected = post("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\"" + params + "}", null);
+            assertEquals(400, rejected.statusCode());
+            assertEquals(McpSchema.ErrorCodes.INVALID_PARAMS, Json.MAPPER.readTree(rejected.body()).at("/error/code").asInt());
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.metricool.mcp.weather.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.metricool.mcp.weather.utils.Json;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Subscriptions are answered by the transport and only subscribed sessions are notified.
+ */
+public class SubscribingTransportProviderTest {
+
+    private McpServerSession.Factory factory;
+    private SubscribingTransportProvider provider;
+
+
+    @BeforeEach
+    public void setUp() {
+        McpServerTransportProvider delegate = new McpServerTransportProvider() {
+            @Override
+            public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+                factory = sessionFactory;
+            }
+
+            @Override
+            public Mono<Void> notifyClients(String method, Object params) {
+                return Mono.empty();
+            }
+
+            @Override
+            public Mono<Void> closeGracefully() {
+                return Mono.empty();
+            }
+        };
+        provider = new SubscribingTransportProvider(delegate, uri -> uri.startsWith("alerts://"));
+        provider.setSessionFactory(transport -> new McpServerSession("session", Duration.ofSeconds(1), transport,
+                null, null, Map.of(), Map.of()));
+    }
+
+
+    @Test
+    public void notifiesSubscribedSessions() {
+        RecordingTransport subscribed = new RecordingTransport();
+        RecordingTransport other = new RecordingTransport();
+        McpServerSession session = factory.create(subscribed);
+        factory.create(other);
+
+        session.handle(request(McpSchema.METHOD_RESOURCES_SUBSCRIBE, "alerts://NY")).block();
+        McpSchema.JSONRPCResponse response = (McpSchema.JSONRPCResponse) subscribed.messages.remove(0);
+        assertEquals(1, response.id());
+        assertNull(response.error());
+        assertEquals(1, provider.size());
+
+        provider.notifyUpdated("alerts://NY");
+        provider.notifyUpdated("alerts://CA");
+        assertEquals(1, subscribed.messages.size());
+        McpSchema.JSONRPCNotification notification = (McpSchema.JSONRPCNotification) subscribed.messages.get(0);
+        assertEquals(SubscribingTransportProvider.METHOD_NOTIFICATION_RESOURCES_UPDATED, notification.method());
+        assertEquals(Map.of("uri", "alerts://NY"), notification.params());
+        assertTrue(other.messages.isEmpty());
+    }
+
+
+    @Test
+    public void stopsNotifyingAfterUnsubscribeOrClose() {
+        RecordingTransport transport = new RecordingTransport();
+        McpServerSession session = factory.create(transport);
+        session.handle(request(McpSchema.METHOD_RESOURCES_SUBSCRIBE, "alerts://NY")).block();
+        session.handle(request(McpSchema.METHOD_RESOURCES_UNSUBSCRIBE, "alerts://NY")).block();
+        assertEquals(0, provider.size());
+
+        session.handle(request(McpSchema.METHOD_RESOURCES_SUBSCRIBE, "alerts://NY")).block();
+        session.close();
+        assertEquals(0, provider.size());
+
+        transport.messages.clear();
+        provider.notifyUpdated("alerts://NY");
+        assertTrue(transport.messages.isEmpty());
+    }
+
+
+    @Test
+    public void rejectsUnknownResources() {
+        RecordingTransport transport = new RecordingTransport();
+        factory.create(transport).handle(request(McpSchema.METHOD_RESOURCES_SUBSCRIBE, "forecast://47,-122")).block();
+        McpSchema.JSONRPCResponse response = (McpSchema.JSONRPCResponse) transport.messages.get(0);
+        assertNotNull(response.error());
+        assertEquals(McpSchema.ErrorCodes.INVALID_PARAMS, response.error().code());
+        assertEquals(0, provider.size());
+    }
+
+
+    private static McpSchema.JSONRPCRequest request(String method, String uri) {
+        return new McpSchema.JSONRPCRequest(McpSchema.JSONRPC_VERSION, method, 1, Map.of("uri", uri));
+    }
+
+
+    private static class RecordingTransport implements McpServerTransport {
+
+        final List<McpSchema.JSONRPCMessage> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+            messages.add(message);
+            return Mono.empty();
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+            return Json.MAPPER.convertValue(data, typeRef);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return Mono.empty();
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.metricool.mcp.weather.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Rate limiting, adaptive concurrency and load shedding of upstream requests.
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    public void backsOffOnThrottlingAndGrowsBackOnSuccess() throws Exception {
+        AdmissionController controller = new AdmissionController(1000, 1000, 8, 1, 64, 0.5, 2.0, 1000, 100);
+
+        controller.acquireBlocking("api.weather.gov").release(503, 0);
+        assertEquals(4, controller.getLimit("api.weather.gov"));
+        controller.acquireBlocking("api.weather.gov").release(429, 0);
+        assertEquals(2, controller.getLimit("api.weather.gov"));
+
+        for (int i = 0; i < 10; i++) {
+            controller.acquireBlocking("api.weather.gov").release(200, 0);
+        }
+        assertTrue(controller.getLimit("api.weather.gov") > 2);
+        assertEquals(8, controller.getLimit("other.host"));
+    }
+
+
+    @Test
+    public void shedsRequestsThatWaitTooLong() throws Exception {
+        AdmissionController controller = new AdmissionController(1000, 1000, 1, 1, 1, 0.5, 2.0, 50, 100);
+        AdmissionController.Permit permit = controller.acquireBlocking("api.weather.gov");
+
+        CompletableFuture<AdmissionController.Permit> waiting = controller.acquire("api.weather.gov");
+        ExecutionException shed = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(OverloadedException.class, shed.getCause());
+
+        // Releasing the slot admits the next request
+        CompletableFuture<AdmissionController.Permit> next = controller.acquire("api.weather.gov");
+        assertFalse(next.isDone());
+        permit.release(200, 0);
+        next.get(5, TimeUnit.SECONDS).release(200, 0);
+    }
+
+
+    @Test
+    public void limitsTheRequestRate() throws Exception {
+        AdmissionController controller = new AdmissionController(20, 1, 8, 1, 64, 0.5, 2.0, 5000, 100);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            controller.acquireBlocking("api.weather.gov").release(200, 0);
+        }
+        // One token in the bucket, then one every 50 ms
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+
+    @Test
+    public void readsRetryAfterAsDelayOrDate() {
+        assertEquals(120, AdmissionController.retryAfterSeconds(retryAfter("120")));
+        long seconds = AdmissionController.retryAfterSeconds(
+                retryAfter(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60))));
+        assertTrue(seconds > 55 && seconds <= 60, "Seconds until the date: " + seconds);
+        assertEquals(0, AdmissionController.retryAfterSeconds(retryAfter("Wed, 21 Oct 2015 07:28:00 GMT")));
+        assertEquals(0, AdmissionController.retryAfterSeconds(retryAfter("soon")));
+        assertEquals(0, AdmissionController.retryAfterSeconds(HttpHeaders.of(Map.of(), (name, value) -> true)));
+    }
+
+
+    @Test
+    public void dateRetryAfterReleasesTheSlot() throws Exception {
+        AdmissionController controller = new AdmissionController(1000, 1000, 1, 1, 1, 0.5, 2.0, 5000, 100);
+
+        controller.acquireBlocking("api.weather.gov").release(response(429, retryAfter("Wed, 21 Oct 2015 07:28:00 GMT")));
+        controller.acquire("api.weather.gov").get(5, TimeUnit.SECONDS).release(200, 0);
+    }
+
+
+    private static HttpHeaders retryAfter(String value) {
+        return HttpHeaders.of(Map.of("Retry-After", List.of(value)), (name, headerValue) -> true);
+    }
+
+
+    private static HttpResponse<Void> response(int statusCode, HttpHeaders headers) {
+        return new HttpResponse<>() {
+            @Override
+            public int statusCode() {
+                return statusCode;
+            }
+
+            @Override
+            public HttpRequest request() {
+                return null;
+            }
+
+            @Override
+            public Optional<HttpResponse<Void>> previousResponse() {
+                return Optional.empty();
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public Void body() {
+                return null;
+            }
+
+            @Override
+            public Optional<SSLSession> sslSession() {
+                return Optional.empty();
+            }
+
+            @Override
+            public URI uri() {
+                return URI.create("https://api.weather.gov/points/47.6,-122.3");
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+}
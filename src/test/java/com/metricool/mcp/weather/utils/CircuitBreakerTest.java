@@ -0,0 +1,99 @@
+package com.metricool.mcp.weather.utils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Opening, probing and closing of the upstream circuit breaker.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndProbesOnce() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("forecast", 3, 50);
+
+        for (int i = 0; i < 3; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+
+        Thread.sleep(60);
+        breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Only one probe at a time
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+
+        breaker.onFailure();
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+
+        Thread.sleep(60);
+        breaker.acquire();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+
+    @Test
+    public void successResetsTheFailureCount() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("forecast", 2, 1000);
+
+        breaker.acquire();
+        breaker.onFailure();
+        breaker.acquire();
+        breaker.onSuccess();
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+
+    @Test
+    public void serverErrorsOpenTheBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("forecast", 3, 1000);
+        URI uri = URI.create("https://api.weather.gov/gridpoints/SEW/124,67/forecast");
+
+        for (int i = 0; i < 3; i++) {
+            breaker.acquire();
+            RestClient.recordOutcome(breaker, new CompletionException(new UpstreamException(uri, 503)));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+
+    @Test
+    public void clientErrorsAndThrottlingDoNotOpenTheBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("forecast", 2, 1000);
+        URI uri = URI.create("https://api.weather.gov/gridpoints/SEW/124,67/forecast");
+
+        for (int i = 0; i < 3; i++) {
+            breaker.acquire();
+            RestClient.recordOutcome(breaker, new UpstreamException(uri, 404));
+            breaker.acquire();
+            RestClient.recordOutcome(breaker, new UpstreamException(uri, 429));
+            breaker.acquire();
+            RestClient.recordOutcome(breaker, new OverloadedException("shed"));
+            breaker.acquire();
+            RestClient.recordOutcome(breaker, new CancellationException());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.acquire();
+        RestClient.recordOutcome(breaker, new IOException("Connection reset"));
+        breaker.acquire();
+        RestClient.recordOutcome(breaker, new UpstreamException(uri, 500));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+}
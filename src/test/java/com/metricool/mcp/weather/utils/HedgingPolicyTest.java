@@ -0,0 +1,81 @@
+package com.metricool.mcp.weather.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Only requests slower than the usual ones are hedged, and never more than the budget allows.
+ */
+public class HedgingPolicyTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+
+    @Test
+    public void noDelayUntilEnoughLatencies() {
+        HedgingPolicy policy = new HedgingPolicy(95, MS, 1);
+        assertEquals(-1, policy.onRequest("forecast"));
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES - 1; i++) {
+            policy.record("forecast", 10 * MS);
+        }
+        assertEquals(-1, policy.onRequest("forecast"));
+    }
+
+
+    @Test
+    public void delayIsPercentileOfEndpointLatencies() {
+        HedgingPolicy policy = new HedgingPolicy(95, MS, 1);
+        for (int i = 1; i <= 100; i++) {
+            policy.record("forecast", i * MS);
+        }
+        // 96 samples were taken into account when the delay was last computed
+        assertEquals(92 * MS, policy.onRequest("forecast"));
+        assertEquals(-1, policy.onRequest("points"));
+    }
+
+
+    @Test
+    public void delayIsAtLeastMinimum() {
+        HedgingPolicy policy = new HedgingPolicy(95, 20 * MS, 1);
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.record("alerts", MS);
+        }
+        assertEquals(20 * MS, policy.onRequest("alerts"));
+    }
+
+
+    @Test
+    public void hedgesLimitedByBudget() {
+        HedgingPolicy policy = new HedgingPolicy(95, MS, 0.05);
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            policy.onRequest("forecast");
+            if (policy.tryHedge()) {
+                hedges++;
+            }
+        }
+        assertEquals(50, hedges);
+        assertFalse(policy.tryHedge());
+    }
+
+
+    @Test
+    public void unusedBudgetIsCapped() {
+        HedgingPolicy policy = new HedgingPolicy(95, MS, 0.5);
+        for (int i = 0; i < 1000; i++) {
+            policy.onRequest("forecast");
+        }
+        int hedges = 0;
+        while (policy.tryHedge()) {
+            hedges++;
+        }
+        assertTrue(hedges <= 10, "hedges " + hedges);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.metricool.mcp.weather.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.metricool.mcp.weather.upstream.NwsStandInServer;
+
+
+/**
+ * Response bodies are decompressed as they are read, whatever the encoding the upstream picked,
+ * and time out when they stall.
+ */
+public class RestClientTest {
+
+    private static final byte[] BODY = "{\"properties\":{\"periods\":[]}}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+
+    private static byte[] decode(byte[] encoded, String contentEncoding) throws IOException {
+        try (InputStream decoded = RestClient.decode(new ByteArrayInputStream(encoded), contentEncoding)) {
+            return decoded.readAllBytes();
+        }
+    }
+
+
+    @Test
+    public void decodesGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(BODY);
+        }
+        assertArrayEquals(BODY, decode(out.toByteArray(), "gzip"));
+    }
+
+
+    @Test
+    public void decodesZlibAndRawDeflate() throws IOException {
+        for (boolean raw : new boolean[] {false, true}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+                deflate.write(BODY);
+            }
+            assertArrayEquals(BODY, decode(out.toByteArray(), "Deflate"));
+        }
+    }
+
+
+    @Test
+    public void passesIdentityThroughAndRejectsUnknownEncodings() throws IOException {
+        assertArrayEquals(BODY, decode(BODY, null));
+        assertArrayEquals(BODY, decode(BODY, "identity"));
+        assertThrows(IOException.class, () -> decode(BODY, "br"));
+    }
+
+
+
+    @Test
+    public void stalledBodiesTimeOutAndCountAsFailures() throws Exception {
+        NwsStandInServer standIn = new NwsStandInServer(0, 0, 0, 0, "max-age=60", false).setStalledBodies(1);
+        String baseUrl = standIn.start();
+        // Read when the breaker of the endpoint is created, on its first request
+        System.setProperty("mcp.weather.http.timeout.stalled.ms", "300");
+        System.setProperty("mcp.weather.breaker.failure-threshold", "1");
+        System.setProperty("mcp.weather.breaker.open.seconds", "1");
+        try {
+            RestClient client = new RestClient();
+            long start = System.nanoTime();
+            assertThrows(HttpTimeoutException.class, () -> client.doGet("stalled",
+                    URI.create(baseUrl + "/gridpoints/SEW/1,1/forecast"), InputStream::readAllBytes, "Accept", "application/geo+json"));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(CircuitBreaker.State.OPEN, RestClient.getCircuitBreaker("stalled").getState());
+
+            // The probes of the half open breaker stall too, and open it again
+            Thread.sleep(1100);
+            start = System.nanoTime();
+            ExecutionException failed = assertThrows(ExecutionException.class, () -> client.doGetAsync("stalled",
+                    URI.create(baseUrl + "/gridpoints/SEW/2,2/forecast"), InputStream::readAllBytes, "Accept", "application/geo+json").get());
+            assertInstanceOf(HttpTimeoutException.class, failed.getCause());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(CircuitBreaker.State.OPEN, RestClient.getCircuitBreaker("stalled").getState());
+
+            Thread.sleep(1100);
+            assertThrows(HttpTimeoutException.class, () -> client.doGet("stalled",
+                    URI.create(baseUrl + "/gridpoints/SEW/3,3/forecast"), InputStream::readAllBytes, "Accept", "application/geo+json"));
+            assertEquals(CircuitBreaker.State.OPEN, RestClient.getCircuitBreaker("stalled").getState());
+        } finally {
+            System.clearProperty("mcp.weather.http.timeout.stalled.ms");
+            System.clearProperty("mcp.weather.breaker.failure-threshold");
+            System.clearProperty("mcp.weather.breaker.open.seconds");
+            standIn.stop();
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.metricool.mcp.weather.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Coalescing of concurrent identical calls.
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    release.await();
+                    return "value";
+                })));
+            }
+            // Wait until every caller either runs the loader or waits on it
+            while (singleFlight.getExecutions() + singleFlight.getCoalesced() < callers) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(callers - 1, singleFlight.getCoalesced());
+    }
+
+
+    @Test
+    public void asyncCallersShareOneExecution() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("key", () -> upstream);
+        CompletableFuture<String> second = singleFlight.executeAsync("key", () -> CompletableFuture.completedFuture("other"));
+        upstream.complete("value");
+
+        assertEquals("value", first.get());
+        assertEquals("value", second.get());
+        assertEquals(1, singleFlight.getCoalesced());
+    }
+
+
+    @Test
+    public void failuresReachEveryCallerAndAreNotCached() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        assertThrows(IOException.class, () -> singleFlight.execute("key", () -> {
+            throw new IOException("boom");
+        }));
+        assertEquals("value", singleFlight.execute("key", () -> "value"));
+    }
+
+
+    @Test
+    public void errorsReleaseWaitingCallers() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                loading.countDown();
+                // Fail once the follower waits on this call
+                while (singleFlight.getCoalesced() == 0) {
+                    Thread.sleep(1);
+                }
+                throw new StackOverflowError();
+            }));
+            loading.await();
+            CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return singleFlight.execute("key", () -> "not loaded");
+                } catch (IOException | InterruptedException e) {
+                    return "failed";
+                }
+            });
+
+            assertEquals("failed", follower.get(5, TimeUnit.SECONDS));
+            assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertEquals("value", singleFlight.execute("key", () -> "value"));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        CompletableFuture<String> failed = singleFlight.executeAsync("async", () -> {
+            throw new StackOverflowError();
+        });
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, error.getCause());
+        assertEquals("value", singleFlight.executeAsync("async", () -> CompletableFuture.completedFuture("value")).get());
+    }
+
+}